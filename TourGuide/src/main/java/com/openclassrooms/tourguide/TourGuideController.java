@@ -1,14 +1,34 @@
 package com.openclassrooms.tourguide;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Supplier;
 
+import com.openclassrooms.tourguide.dto.AttractionTrafficDto;
+import com.openclassrooms.tourguide.dto.HeatmapCellDto;
+import com.openclassrooms.tourguide.dto.LeaderboardEntryDto;
 import com.openclassrooms.tourguide.dto.NearbyAttractionDto;
+import com.openclassrooms.tourguide.dto.NearbyUserDto;
+import com.openclassrooms.tourguide.tracing.SpanData;
+import com.openclassrooms.tourguide.tracing.Tracer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
+import jakarta.servlet.http.HttpServletResponse;
 
-import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
 
 import com.openclassrooms.tourguide.service.TourGuideService;
@@ -19,18 +39,64 @@ import tripPricer.Provider;
 
 @RestController
 public class TourGuideController {
+    static final int MAX_LOCATION_HISTORY_LIMIT = 10000;
 
 	@Autowired
 	TourGuideService tourGuideService;
+
+	@Autowired
+	UserResponseCache responseCache;
+
+	@Autowired
+	ObjectMapper objectMapper;
 	
     @RequestMapping("/")
     public String index() {
         return "Greetings from TourGuide!";
     }
     
+    /**
+     * Retrieves the last known location of the user, with the versioned caching described
+     * in {@link #versioned(String, User, WebRequest, Supplier)}.
+     *
+     * @param userName the name of the current user
+     * @return the user's {@link VisitedLocation} as JSON, or 304 if the client's copy is current
+     */
     @RequestMapping("/getLocation") 
-    public VisitedLocation getLocation(@RequestParam String userName) {
-    	return tourGuideService.getUserLocation(getUser(userName));
+    public ResponseEntity<byte[]> getLocation(@RequestParam String userName, WebRequest request) {
+        User user = getUser(userName);
+        return versioned("/getLocation", user, request, () -> tourGuideService.getUserLocation(user));
+    }
+
+    /**
+     * Retrieves the locations visited by the user within a time window, oldest first. The
+     * window is found by binary search in the user's history and written to the response as
+     * it is serialized, so its cost depends on the size of the window, not of the history.
+     *
+     * @param userName the name of the current user
+     * @param from the start of the window as an ISO-8601 instant, inclusive, unbounded by default
+     * @param to the end of the window as an ISO-8601 instant, inclusive, unbounded by default
+     * @param limit the maximum number of locations, at most {@value #MAX_LOCATION_HISTORY_LIMIT}
+     */
+    @RequestMapping("/getLocationHistory")
+    public void getLocationHistory(@RequestParam String userName, @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to, @RequestParam(defaultValue = "1000") int limit,
+            HttpServletResponse response) throws IOException {
+        if (limit < 1 || limit > MAX_LOCATION_HISTORY_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + MAX_LOCATION_HISTORY_LIMIT);
+        }
+        List<VisitedLocation> locations = tourGuideService.getLocationHistory(getUser(userName),
+                from == null ? Instant.ofEpochMilli(Long.MIN_VALUE) : from,
+                to == null ? Instant.ofEpochMilli(Long.MAX_VALUE) : to, limit);
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (SequenceWriter writer = objectMapper.writerFor(VisitedLocation.class)
+                .writeValuesAsArray(response.getOutputStream())) {
+            for (VisitedLocation location : locations) {
+                writer.write(location);
+            }
+        }
     }
 
     /**
@@ -45,21 +111,40 @@ public class TourGuideController {
      *   <li>The reward points for visiting the attraction.</li>
      * </ul>
      *
+     * The response is cached as described in {@link #versioned(String, User, WebRequest, Supplier)}.
+     *
      * @param userName the name of the current user
-     * @return a list of {@link NearbyAttractionDto}
+     * @return a list of {@link NearbyAttractionDto} as JSON, or 304 if the client's copy is current
      */
     @RequestMapping("/getNearbyAttractions") 
-    public List<NearbyAttractionDto> getNearbyAttractions(@RequestParam String userName) {
+    public ResponseEntity<byte[]> getNearbyAttractions(@RequestParam String userName, WebRequest request) {
         User user = getUser(userName);
-        VisitedLocation visitedLocation = tourGuideService.getUserLocation(user);
-        List<Attraction> attractions = tourGuideService.getNearByAttractions(visitedLocation);
+        return versioned("/getNearbyAttractions", user, request, () -> tourGuideService.getNearByAttractionsInfo(user));
+    }
 
-        return tourGuideService.getNearByAttractionsInfo(user, attractions);
+    /**
+     * Retrieves the attractions within the user's attraction proximity preference, or within the
+     * reward proximity buffer if they have none.
+     *
+     * @param userName the name of the current user
+     * @return a list of {@link NearbyAttractionDto}, nearest first
+     */
+    @RequestMapping("/getAttractionsWithinRange")
+    public List<NearbyAttractionDto> getAttractionsWithinRange(@RequestParam String userName) {
+        return tourGuideService.getAttractionsWithinRange(getUser(userName));
     }
-    
+
+    /**
+     * Retrieves the rewards of the user, with the versioned caching described in
+     * {@link #versioned(String, User, WebRequest, Supplier)}.
+     *
+     * @param userName the name of the current user
+     * @return a list of {@link UserReward} as JSON, or 304 if the client's copy is current
+     */
     @RequestMapping("/getRewards") 
-    public List<UserReward> getRewards(@RequestParam String userName) {
-    	return tourGuideService.getUserRewards(getUser(userName));
+    public ResponseEntity<byte[]> getRewards(@RequestParam String userName, WebRequest request) {
+        User user = getUser(userName);
+        return versioned("/getRewards", user, request, () -> tourGuideService.getUserRewards(user));
     }
        
     @RequestMapping("/getTripDeals")
@@ -67,6 +152,97 @@ public class TourGuideController {
     	return tourGuideService.getTripDeals(getUser(userName));
     }
     
+    /**
+     * Retrieves the users whose latest known position is within a radius of an attraction,
+     * answered from an index of the users' latest positions by geo-cell.
+     *
+     * @param attractionName the name of the attraction
+     * @param radius the radius in miles
+     * @param limit the maximum number of users to return
+     * @return a list of {@link NearbyUserDto}, nearest first
+     */
+    @RequestMapping("/attractions/{attractionName}/nearbyUsers")
+    public List<NearbyUserDto> getNearbyUsers(@PathVariable String attractionName, @RequestParam double radius,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (radius < 0 || limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "radius must be positive and limit at least 1");
+        }
+        List<NearbyUserDto> nearbyUsers = tourGuideService.getNearbyUsers(attractionName, radius, limit);
+        if (nearbyUsers == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown attraction: " + attractionName);
+        }
+        return nearbyUsers;
+    }
+
+    /**
+     * Retrieves the users with the highest cumulative reward points, best first.
+     *
+     * @param top the number of users to return, at least 1
+     * @return a list of {@link LeaderboardEntryDto}, or 400 if {@code top} is less than 1
+     */
+    @RequestMapping("/leaderboard")
+    public List<LeaderboardEntryDto> getLeaderboard(@RequestParam(defaultValue = "10") int top) {
+        if (top < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "top must be at least 1");
+        }
+        return tourGuideService.getLeaderboard(top);
+    }
+
+    /**
+     * Retrieves live traffic counters of every attraction: tracked locations within its
+     * proximity buffer, rewards granted and reward points granted.
+     *
+     * @return a list of {@link AttractionTrafficDto}
+     */
+    @RequestMapping("/getAttractionTraffic")
+    public List<AttractionTrafficDto> getAttractionTraffic() {
+        return tourGuideService.getAttractionTraffic();
+    }
+
+    /**
+     * Retrieves the number of tracked user positions per coarse geo-cell.
+     *
+     * @return a list of {@link HeatmapCellDto}
+     */
+    @RequestMapping("/getHeatmap")
+    public List<HeatmapCellDto> getHeatmap() {
+        return tourGuideService.getHeatmap();
+    }
+
+    /**
+     * Returns the spans of a trace, e.g. of a slow request whose trace id was returned in
+     * its {@code X-Trace-Id} response header. Spans are only kept when tracing is enabled
+     * with the in-memory exporter.
+     *
+     * @param traceId the id of the trace
+     * @return the spans of the trace still held, ordered by start time
+     */
+    @RequestMapping("/getTrace")
+    public List<SpanData> getTrace(@RequestParam String traceId) {
+        return Tracer.getExporter().getTrace(traceId);
+    }
+
+    /**
+     * Serves a response that only depends on the user's locations and rewards.
+     * <p>
+     * The response is CBOR if the client accepts {@code application/cbor}, JSON otherwise.
+     * The ETag is derived from the user's {@link User#getVersion() version}: a request whose
+     * {@code If-None-Match} matches it gets an empty 304 response. Otherwise the serialized
+     * response is taken from the {@link UserResponseCache}, and only computed and serialized
+     * again when the user changed since it was cached.
+     * </p>
+     */
+    private ResponseEntity<byte[]> versioned(String endpoint, User user, WebRequest request, Supplier<?> response) {
+        MediaType format = UserResponseCache.formatOf(request.getHeader(HttpHeaders.ACCEPT));
+        long version = user.getVersion();
+        String eTag = "\"" + user.getUserId() + "-" + version + "-" + format.getSubtype() + "\"";
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        byte[] body = responseCache.get(endpoint, format, user, version, response);
+        return ResponseEntity.ok().eTag(eTag).contentType(format).varyBy(HttpHeaders.ACCEPT).body(body);
+    }
+
     private User getUser(String userName) {
     	return tourGuideService.getUser(userName);
     }
@@ -1,27 +1,147 @@
 package com.openclassrooms.tourguide;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 
 import gpsUtil.GpsUtil;
 import rewardCentral.RewardCentral;
+import tripPricer.TripPricer;
+import com.openclassrooms.tourguide.client.GpsUtilClient;
+import com.openclassrooms.tourguide.client.LatencyProfile;
+import com.openclassrooms.tourguide.client.RewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
+import com.openclassrooms.tourguide.client.TripPricerClient;
+import com.openclassrooms.tourguide.json.TourGuideJsonModule;
 import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.tracing.FileSpanExporter;
+import com.openclassrooms.tourguide.tracing.InMemorySpanExporter;
+import com.openclassrooms.tourguide.tracing.SpanExporter;
+import com.openclassrooms.tourguide.tracing.Tracer;
 
+/**
+ * Wires the external dependencies.
+ * <p>
+ * By default the vendored GpsUtil, RewardCentral and TripPricer libraries are used. Setting
+ * {@code tourguide.simulation.enabled=true} replaces them with seeded local stand-ins whose
+ * latency distribution and error rate are configured per dependency, see {@link LatencyProfile}
+ * for the latency syntax.
+ * </p>
+ * <p>
+ * Tracing is disabled unless {@code tourguide.tracing.exporter} is set to {@code memory}, keeping
+ * the last {@code tourguide.tracing.capacity} spans, or to {@code file}, appending spans to
+ * {@code tourguide.tracing.file}.
+ * </p>
+ * <p>
+ * Responses are serialized with {@link TourGuideJsonModule}, as JSON or, for clients accepting
+ * {@code application/cbor}, as CBOR.
+ * </p>
+ */
 @Configuration
 public class TourGuideModule {
-	
+
+	@Value("${tourguide.simulation.enabled:false}")
+	private boolean simulationEnabled;
+
+	@Value("${tourguide.simulation.seed:42}")
+	private long simulationSeed;
+
+	@Value("${tourguide.simulation.gps-util.latency:uniform:30:100}")
+	private String gpsUtilLatency;
+
+	@Value("${tourguide.simulation.gps-util.error-rate:0}")
+	private double gpsUtilErrorRate;
+
+	@Value("${tourguide.simulation.reward-central.latency:uniform:1:1000}")
+	private String rewardCentralLatency;
+
+	@Value("${tourguide.simulation.reward-central.error-rate:0}")
+	private double rewardCentralErrorRate;
+
+	@Value("${tourguide.simulation.trip-pricer.latency:uniform:1:50}")
+	private String tripPricerLatency;
+
+	@Value("${tourguide.simulation.trip-pricer.error-rate:0}")
+	private double tripPricerErrorRate;
+
+	@Value("${tourguide.tracing.exporter:none}")
+	private String tracingExporter;
+
+	@Value("${tourguide.tracing.capacity:100000}")
+	private int tracingCapacity;
+
+	@Value("${tourguide.tracing.file:traces.jsonl}")
+	private Path tracingFile;
+
 	@Bean
 	public GpsUtil getGpsUtil() {
 		return new GpsUtil();
 	}
-	
+
+	@Bean
+	public GpsUtilClient getGpsUtilClient() {
+		if (simulationEnabled) {
+			return new SimulatedGpsUtilClient(simulationSeed, LatencyProfile.parse(gpsUtilLatency), gpsUtilErrorRate);
+		}
+		return GpsUtilClient.of(getGpsUtil());
+	}
+
 	@Bean
 	public RewardsService getRewardsService() {
-		return new RewardsService(getRewardCentral());
+		return new RewardsService(getRewardCentralClient());
 	}
-	
+
 	@Bean
 	public RewardCentral getRewardCentral() {
 		return new RewardCentral();
 	}
+
+	@Bean
+	public RewardCentralClient getRewardCentralClient() {
+		if (simulationEnabled) {
+			return new SimulatedRewardCentralClient(simulationSeed, LatencyProfile.parse(rewardCentralLatency),
+					rewardCentralErrorRate);
+		}
+		return RewardCentralClient.of(getRewardCentral());
+	}
+
+	@Bean
+	public TripPricerClient getTripPricerClient() {
+		if (simulationEnabled) {
+			return new SimulatedTripPricerClient(simulationSeed, LatencyProfile.parse(tripPricerLatency),
+					tripPricerErrorRate);
+		}
+		return TripPricerClient.of(new TripPricer());
+	}
+
+	@Bean
+	public TourGuideJsonModule getJsonModule() {
+		return new TourGuideJsonModule();
+	}
+
+	@Bean
+	public MappingJackson2CborHttpMessageConverter getCborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+	}
+
+	@Bean
+	public SpanExporter getSpanExporter() throws IOException {
+		SpanExporter exporter = switch (tracingExporter) {
+			case "none" -> SpanExporter.NONE;
+			case "memory" -> new InMemorySpanExporter(tracingCapacity);
+			case "file" -> new FileSpanExporter(tracingFile);
+			default -> throw new IllegalArgumentException("Unknown span exporter: " + tracingExporter);
+		};
+		Tracer.setExporter(exporter);
+		return exporter;
+	}
 }
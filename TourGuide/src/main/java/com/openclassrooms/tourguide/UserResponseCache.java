@@ -0,0 +1,117 @@
+package com.openclassrooms.tourguide;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Serialized responses of the user endpoints, keyed by endpoint, user and format, which is
+ * either JSON or CBOR.
+ * <p>
+ * Each entry remembers the {@link User#getVersion() version} of the user it was computed
+ * for. A lookup with a newer version discards the entry and serializes the response again,
+ * so a cached response never outlives a change of the user's locations or rewards, except
+ * when explicitly asked for with {@link #getStale(String, MediaType, User)}. When the cache is
+ * full an arbitrary entry is evicted.
+ * </p>
+ */
+@Component
+public class UserResponseCache {
+	private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+	private final ObjectMapper jsonMapper;
+	private final ObjectMapper cborMapper;
+	private final int maxEntries;
+
+	public UserResponseCache(ObjectMapper jsonMapper, MappingJackson2CborHttpMessageConverter cborConverter,
+			@Value("${tourguide.response-cache.max-entries:10000}") int maxEntries) {
+		this.jsonMapper = jsonMapper;
+		this.cborMapper = cborConverter.getObjectMapper();
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Returns the serialized response of the endpoint for the user at the given version,
+	 * computing and caching it if needed.
+	 *
+	 * @param endpoint the endpoint the response belongs to
+	 * @param format {@link MediaType#APPLICATION_JSON} or {@link MediaType#APPLICATION_CBOR}
+	 * @param user the user the response is about
+	 * @param version the version of the user the response must reflect
+	 * @param response computes the response to serialize
+	 * @return the serialized response
+	 */
+	public byte[] get(String endpoint, MediaType format, User user, long version, Supplier<?> response) {
+		Key key = new Key(endpoint, format, user.getUserId());
+		Entry entry = entries.get(key);
+		if (entry != null && entry.version() == version) {
+			return entry.serialized();
+		}
+
+		byte[] serialized = serialize(MediaType.APPLICATION_CBOR.equals(format) ? cborMapper : jsonMapper, response.get());
+		if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+			evictOne();
+		}
+		entries.merge(key, new Entry(version, serialized),
+				(current, computed) -> current.version() > computed.version() ? current : computed);
+		return serialized;
+	}
+
+	/**
+	 * Returns the last serialized response of the endpoint for the user, whatever version it
+	 * was computed for. Used to answer a request rejected by admission control.
+	 *
+	 * @return the serialized response, or null if none is cached
+	 */
+	public byte[] getStale(String endpoint, MediaType format, User user) {
+		Entry entry = entries.get(new Key(endpoint, format, user.getUserId()));
+		return entry == null ? null : entry.serialized();
+	}
+
+	/**
+	 * @param accept the {@code Accept} header of a request, may be null
+	 * @return {@link MediaType#APPLICATION_CBOR} if it accepts CBOR, {@link MediaType#APPLICATION_JSON} otherwise
+	 */
+	public static MediaType formatOf(String accept) {
+		boolean acceptsCbor = accept != null && MediaType.parseMediaTypes(accept).stream()
+				.anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR));
+		return acceptsCbor ? MediaType.APPLICATION_CBOR : MediaType.APPLICATION_JSON;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private static byte[] serialize(ObjectMapper objectMapper, Object response) {
+		try {
+			return objectMapper.writeValueAsBytes(response);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not serialize response", e);
+		}
+	}
+
+	private void evictOne() {
+		Iterator<Key> keys = entries.keySet().iterator();
+		if (keys.hasNext()) {
+			keys.next();
+			keys.remove();
+		}
+	}
+
+	private record Key(String endpoint, MediaType format, UUID userId) {
+	}
+
+	private record Entry(long version, byte[] serialized) {
+	}
+}
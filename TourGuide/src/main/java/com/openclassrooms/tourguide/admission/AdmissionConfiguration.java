@@ -0,0 +1,98 @@
+package com.openclassrooms.tourguide.admission;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.openclassrooms.tourguide.UserResponseCache;
+import com.openclassrooms.tourguide.service.TourGuideService;
+
+/**
+ * Protects GpsUtil, RewardCentral and TripPricer from bursts of requests.
+ * <p>
+ * {@code /getLocation}, {@code /getNearbyAttractions}, {@code /getAttractionsWithinRange} and
+ * {@code /getTripDeals} each get a token bucket, configured with
+ * {@code tourguide.admission.<endpoint>.requests-per-second} and {@code .burst}, and every
+ * registered user gets one over these endpoints, configured with {@code tourguide.admission.user.*},
+ * at most {@code tourguide.admission.user.max-buckets} being kept. At most {@code tourguide.admission.max-concurrent-requests}
+ * of these requests run at once, {@code tourguide.admission.tracker-reserved} fewer while the
+ * Tracker is running a cycle. Setting {@code tourguide.admission.enabled=false} turns it off.
+ * </p>
+ */
+@Configuration
+public class AdmissionConfiguration implements WebMvcConfigurer {
+
+	@Value("${tourguide.admission.enabled:true}")
+	private boolean enabled;
+
+	@Value("${tourguide.admission.max-concurrent-requests:64}")
+	private int maxConcurrentRequests;
+
+	@Value("${tourguide.admission.tracker-reserved:32}")
+	private int trackerReserved;
+
+	@Value("${tourguide.admission.user.requests-per-second:5}")
+	private double userRequestsPerSecond;
+
+	@Value("${tourguide.admission.user.burst:20}")
+	private double userBurst;
+
+	@Value("${tourguide.admission.user.max-buckets:100000}")
+	private int maxUserBuckets;
+
+	@Value("${tourguide.admission.location.requests-per-second:200}")
+	private double locationRequestsPerSecond;
+
+	@Value("${tourguide.admission.location.burst:400}")
+	private double locationBurst;
+
+	@Value("${tourguide.admission.nearby-attractions.requests-per-second:50}")
+	private double nearbyAttractionsRequestsPerSecond;
+
+	@Value("${tourguide.admission.nearby-attractions.burst:100}")
+	private double nearbyAttractionsBurst;
+
+	@Value("${tourguide.admission.attractions-within-range.requests-per-second:50}")
+	private double attractionsWithinRangeRequestsPerSecond;
+
+	@Value("${tourguide.admission.attractions-within-range.burst:100}")
+	private double attractionsWithinRangeBurst;
+
+	@Value("${tourguide.admission.trip-deals.requests-per-second:100}")
+	private double tripDealsRequestsPerSecond;
+
+	@Value("${tourguide.admission.trip-deals.burst:200}")
+	private double tripDealsBurst;
+
+	private final TourGuideService tourGuideService;
+	private final UserResponseCache responseCache;
+
+	public AdmissionConfiguration(TourGuideService tourGuideService, UserResponseCache responseCache) {
+		this.tourGuideService = tourGuideService;
+		this.responseCache = responseCache;
+	}
+
+	@Bean
+	public AdmissionControl getAdmissionControl() {
+		return new AdmissionControl(Map.of(
+				"/getLocation", new TokenBucket(locationRequestsPerSecond, locationBurst),
+				"/getNearbyAttractions", new TokenBucket(nearbyAttractionsRequestsPerSecond, nearbyAttractionsBurst),
+				"/getAttractionsWithinRange", new TokenBucket(attractionsWithinRangeRequestsPerSecond,
+						attractionsWithinRangeBurst),
+				"/getTripDeals", new TokenBucket(tripDealsRequestsPerSecond, tripDealsBurst)),
+				userRequestsPerSecond, userBurst, maxUserBuckets, maxConcurrentRequests, trackerReserved,
+				tourGuideService.tracker::isTracking);
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		if (enabled) {
+			registry.addInterceptor(new AdmissionInterceptor(getAdmissionControl(), tourGuideService, responseCache))
+					.addPathPatterns("/getLocation", "/getNearbyAttractions", "/getAttractionsWithinRange", "/getTripDeals");
+		}
+	}
+}
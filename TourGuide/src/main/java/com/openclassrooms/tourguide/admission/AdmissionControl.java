@@ -0,0 +1,176 @@
+package com.openclassrooms.tourguide.admission;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Decides whether a request to an endpoint calling GpsUtil, RewardCentral or TripPricer
+ * may run now.
+ * <p>
+ * A request is admitted when:
+ * <ul>
+ *   <li>a concurrency slot is free: at most {@code maxConcurrentRequests} such requests run
+ *   at once, and only {@code maxConcurrentRequests - trackerReserved} while the Tracker is
+ *   running a cycle, so that its calls to the dependencies always keep their share,</li>
+ *   <li>the token bucket of the endpoint has a token,</li>
+ *   <li>the token bucket of the user has a token.</li>
+ * </ul>
+ * Nothing queues: a request that is not admitted is rejected at once, with the delay after
+ * which trying again may succeed.
+ * </p>
+ * <p>
+ * At most {@code maxUserBuckets} user buckets are kept. Once they are all taken, the buckets
+ * that refilled up to their burst, which behave as new ones, are evicted, at most once per
+ * second; a new user's request is rejected while none can be.
+ * </p>
+ */
+public class AdmissionControl {
+	private final Map<String, TokenBucket> endpointBuckets;
+	private static final long EVICTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+	private final double userRequestsPerSecond;
+	private final double userBurst;
+	private final int maxUserBuckets;
+	private final AtomicLong evictedAt = new AtomicLong(System.nanoTime() - EVICTION_INTERVAL_NANOS);
+	private final int maxConcurrentRequests;
+	private final int trackerReserved;
+	private final BooleanSupplier tracking;
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	/**
+	 * @param endpointBuckets the protected endpoints and their token bucket
+	 * @param userRequestsPerSecond the sustained rate allowed to each user over the protected endpoints
+	 * @param userBurst the number of requests a user may send at once
+	 * @param maxUserBuckets the number of users whose bucket is kept
+	 * @param maxConcurrentRequests the number of protected requests running at once
+	 * @param trackerReserved the part of {@code maxConcurrentRequests} kept for the Tracker during its cycles
+	 * @param tracking tells whether the Tracker is running a cycle
+	 */
+	public AdmissionControl(Map<String, TokenBucket> endpointBuckets, double userRequestsPerSecond, double userBurst,
+			int maxUserBuckets, int maxConcurrentRequests, int trackerReserved, BooleanSupplier tracking) {
+		if (trackerReserved < 0 || trackerReserved >= maxConcurrentRequests) {
+			throw new IllegalArgumentException("The Tracker reservation must leave room for requests");
+		}
+		this.endpointBuckets = Map.copyOf(endpointBuckets);
+		this.userRequestsPerSecond = userRequestsPerSecond;
+		this.userBurst = userBurst;
+		this.maxUserBuckets = maxUserBuckets;
+		this.maxConcurrentRequests = maxConcurrentRequests;
+		this.trackerReserved = trackerReserved;
+		this.tracking = tracking;
+	}
+
+	public boolean isProtected(String endpoint) {
+		return endpointBuckets.containsKey(endpoint);
+	}
+
+	/**
+	 * Tries to admit a request. An admitted request holds a concurrency slot until
+	 * {@link #release()} is called.
+	 *
+	 * @param endpoint a protected endpoint
+	 * @param userName the user of the request, or null if unknown
+	 * @return the decision
+	 */
+	public Admission tryAdmit(String endpoint, String userName) {
+		if (!tryAcquireSlot()) {
+			return Admission.overloaded(TimeUnit.SECONDS.toNanos(1));
+		}
+		TokenBucket endpointBucket = endpointBuckets.get(endpoint);
+		if (!endpointBucket.tryConsume()) {
+			release();
+			return Admission.rateLimited(endpointBucket.nanosUntilAvailable());
+		}
+		if (userName != null) {
+			TokenBucket userBucket = userBucket(userName);
+			if (userBucket == null) {
+				release();
+				return Admission.overloaded(EVICTION_INTERVAL_NANOS);
+			}
+			if (!userBucket.tryConsume()) {
+				release();
+				return Admission.rateLimited(userBucket.nanosUntilAvailable());
+			}
+		}
+		return Admission.ADMITTED;
+	}
+
+	/**
+	 * Frees the concurrency slot of an admitted request once it completed.
+	 */
+	public void release() {
+		inFlight.decrementAndGet();
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public int getUserBucketCount() {
+		return userBuckets.size();
+	}
+
+	/**
+	 * @return the bucket of the user, or null if there is no room for a new one
+	 */
+	private TokenBucket userBucket(String userName) {
+		TokenBucket bucket = userBuckets.get(userName);
+		if (bucket != null) {
+			return bucket;
+		}
+		if (userBuckets.size() >= maxUserBuckets) {
+			long evicted = evictedAt.get();
+			long now = System.nanoTime();
+			if (now - evicted >= EVICTION_INTERVAL_NANOS && evictedAt.compareAndSet(evicted, now)) {
+				userBuckets.values().removeIf(TokenBucket::isFull);
+			}
+			if (userBuckets.size() >= maxUserBuckets) {
+				return null;
+			}
+		}
+		return userBuckets.computeIfAbsent(userName, name -> new TokenBucket(userRequestsPerSecond, userBurst));
+	}
+
+	private boolean tryAcquireSlot() {
+		int limit = tracking.getAsBoolean() ? maxConcurrentRequests - trackerReserved : maxConcurrentRequests;
+		while (true) {
+			int current = inFlight.get();
+			if (current >= limit) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Outcome of {@link AdmissionControl#tryAdmit(String, String)}.
+	 *
+	 * @param admitted whether the request may run
+	 * @param reason why the request was rejected, null if admitted
+	 * @param retryAfterNanos the delay after which a rejected request may succeed
+	 */
+	public record Admission(boolean admitted, String reason, long retryAfterNanos) {
+		static final Admission ADMITTED = new Admission(true, null, 0);
+
+		static Admission rateLimited(long retryAfterNanos) {
+			return new Admission(false, "rate limit exceeded", retryAfterNanos);
+		}
+
+		static Admission overloaded(long retryAfterNanos) {
+			return new Admission(false, "too many concurrent requests", retryAfterNanos);
+		}
+
+		/**
+		 * @return the delay for a {@code Retry-After} header, rounded up to whole seconds
+		 */
+		public long retryAfterSeconds() {
+			return Math.max(1, (retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.openclassrooms.tourguide.admission;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import com.openclassrooms.tourguide.UserResponseCache;
+import com.openclassrooms.tourguide.admission.AdmissionControl.Admission;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Applies {@link AdmissionControl} to the protected endpoints.
+ * <p>
+ * A rejected request is answered with the last response cached for the user by
+ * {@link UserResponseCache}, flagged with a {@code Warning: 110} header, or with a 429 and a
+ * {@code Retry-After} header when nothing is cached.
+ * </p>
+ * <p>
+ * Endpoints are identified by the path pattern of the handler, so that they are matched
+ * whatever the context path and servlet mapping the application is deployed under.
+ * </p>
+ */
+public class AdmissionInterceptor implements HandlerInterceptor {
+	static final String STALE_WARNING = "110 - \"Response is Stale\"";
+	private static final String ADMITTED_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".admitted";
+	private final Logger logger = LoggerFactory.getLogger(AdmissionInterceptor.class);
+	private final AdmissionControl admissionControl;
+	private final TourGuideService tourGuideService;
+	private final UserResponseCache responseCache;
+
+	public AdmissionInterceptor(AdmissionControl admissionControl, TourGuideService tourGuideService,
+			UserResponseCache responseCache) {
+		this.admissionControl = admissionControl;
+		this.tourGuideService = tourGuideService;
+		this.responseCache = responseCache;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+			throws IOException {
+		String endpoint = endpointOf(request);
+		if (!admissionControl.isProtected(endpoint)) {
+			return true;
+		}
+
+		String userName = request.getParameter("userName");
+		User user = userName == null ? null : tourGuideService.getUser(userName);
+		Admission admission = admissionControl.tryAdmit(endpoint, user == null ? null : user.getUserName());
+		if (admission.admitted()) {
+			request.setAttribute(ADMITTED_ATTRIBUTE, Boolean.TRUE);
+			return true;
+		}
+
+		logger.debug("Rejected {} for {}: {}", endpoint, userName, admission.reason());
+		MediaType format = UserResponseCache.formatOf(request.getHeader(HttpHeaders.ACCEPT));
+		byte[] stale = user == null ? null : responseCache.getStale(endpoint, format, user);
+		if (stale != null) {
+			response.setStatus(HttpStatus.OK.value());
+			response.setContentType(format.toString());
+			response.setHeader(HttpHeaders.WARNING, STALE_WARNING);
+			response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+			response.getOutputStream().write(stale);
+		} else {
+			response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(admission.retryAfterSeconds()));
+			response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), admission.reason());
+		}
+		return false;
+	}
+
+	/**
+	 * @return the path pattern of the matched handler, or the request path within the
+	 *         application if the handler mapping did not expose one
+	 */
+	static String endpointOf(HttpServletRequest request) {
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		if (pattern instanceof String) {
+			return (String) pattern;
+		}
+		return request.getRequestURI().substring(request.getContextPath().length());
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		if (request.getAttribute(ADMITTED_ATTRIBUTE) != null) {
+			admissionControl.release();
+		}
+	}
+}
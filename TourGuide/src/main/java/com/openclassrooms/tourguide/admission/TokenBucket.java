@@ -0,0 +1,65 @@
+package com.openclassrooms.tourguide.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket refilled continuously at a fixed rate, holding at most {@code burst} tokens.
+ * A request is allowed when it can take a whole token.
+ */
+public class TokenBucket {
+	private final double burst;
+	private final double tokensPerNano;
+	private final LongSupplier nanoClock;
+	private double tokens;
+	private long refilledAt;
+
+	public TokenBucket(double tokensPerSecond, double burst) {
+		this(tokensPerSecond, burst, System::nanoTime);
+	}
+
+	public TokenBucket(double tokensPerSecond, double burst, LongSupplier nanoClock) {
+		if (tokensPerSecond <= 0 || burst < 1) {
+			throw new IllegalArgumentException("A token bucket needs a positive rate and a burst of at least one token");
+		}
+		this.burst = burst;
+		this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+		this.nanoClock = nanoClock;
+		this.tokens = burst;
+		this.refilledAt = nanoClock.getAsLong();
+	}
+
+	/**
+	 * @return true if a token was taken, false if the bucket is empty
+	 */
+	public synchronized boolean tryConsume() {
+		refill();
+		if (tokens < 1) {
+			return false;
+		}
+		tokens--;
+		return true;
+	}
+
+	/**
+	 * @return the nanoseconds until a token is available, 0 if one is available now
+	 */
+	public synchronized long nanosUntilAvailable() {
+		refill();
+		return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+	}
+
+	/**
+	 * @return true if the bucket refilled up to its burst, so that it behaves as a new one
+	 */
+	public synchronized boolean isFull() {
+		refill();
+		return tokens >= burst;
+	}
+
+	private void refill() {
+		long now = nanoClock.getAsLong();
+		tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+		refilledAt = now;
+	}
+}
@@ -0,0 +1,327 @@
+package com.openclassrooms.tourguide.bulk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.geo.AttractionIndex;
+import com.openclassrooms.tourguide.history.LocationCodec;
+import com.openclassrooms.tourguide.service.AttractionsService;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserPreferences;
+import com.openclassrooms.tourguide.user.UserRewardStore;
+
+/**
+ * Reads and writes users, with their location history, rewards and preferences, as a binary
+ * stream of length-prefixed records.
+ * <p>
+ * The stream starts with the {@value #MAGIC} magic number and the format version, followed by
+ * one record per user: its length as an int, then the user id, name, phone number and email
+ * address, latest location timestamp and preferences, the history encoded with
+ * {@link LocationCodec}, and the rewards as attraction name, location index and points, the
+ * index being {@link UserRewardStore#NO_LOCATION} once the history has been cleared.
+ * Coordinates are therefore rounded to a ten-millionth of a degree. Attractions are stored
+ * by name, so that a stream stays readable if the catalog order changes.
+ * </p>
+ * <p>
+ * Both directions go through NIO channels in chunks of {@value #CHUNK_SIZE} bytes, so neither
+ * the stream nor the population is ever held in memory as a whole. Reading decodes records in
+ * parallel, at most {@value #RECORDS_IN_FLIGHT_PER_THREAD} records per thread being read ahead
+ * of the decoders. A record longer than {@value #MAX_RECORD_SIZE} bytes is rejected, so that a
+ * malformed or hostile stream cannot make the reader allocate more than that.
+ * </p>
+ */
+public final class UserBulkFile {
+	public static final int MAGIC = 0x54475542;
+	public static final int VERSION = 1;
+	static final int CHUNK_SIZE = 1 << 20;
+	static final int RECORDS_IN_FLIGHT_PER_THREAD = 256;
+	/** Largest record accepted, checked before its buffer is allocated, some ten million locations. */
+	public static final int MAX_RECORD_SIZE = 64 << 20;
+	private static final int NULL_STRING = -1;
+	private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+	private static final AttractionIndex attractionIndex = AttractionsService.attractionIndex;
+
+	private UserBulkFile() {
+	}
+
+	/**
+	 * Writes the users to the channel, each one while holding its lock.
+	 *
+	 * @return the number of users written
+	 * @throws IOException if the channel fails or a user's record exceeds {@value #MAX_RECORD_SIZE} bytes
+	 */
+	public static long write(WritableByteChannel channel, Iterable<User> users) throws IOException {
+		ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+		chunk.putInt(MAGIC).putInt(VERSION);
+		long count = 0;
+		for (User user : users) {
+			byte[] record = encode(user);
+			if (record.length > MAX_RECORD_SIZE) {
+				throw new IOException("The record of " + user.getUserName() + " exceeds " + MAX_RECORD_SIZE + " bytes");
+			}
+			if (chunk.remaining() < Integer.BYTES + record.length) {
+				drain(channel, chunk);
+			}
+			if (chunk.remaining() < Integer.BYTES + record.length) {
+				chunk.putInt(record.length);
+				drain(channel, chunk);
+				writeFully(channel, ByteBuffer.wrap(record));
+			} else {
+				chunk.putInt(record.length).put(record);
+			}
+			count++;
+		}
+		drain(channel, chunk);
+		return count;
+	}
+
+	/**
+	 * Reads the users of the channel until its end, decoding them on {@code parallelism}
+	 * threads and passing each one to the sink on the thread that decoded it.
+	 *
+	 * @param channel the channel to read, positioned at the start of the stream
+	 * @param parallelism the number of decoding threads
+	 * @param sink receives the users, concurrently and in no particular order
+	 * @return the number of users read
+	 * @throws IOException if the stream is malformed or a user could not be decoded or accepted,
+	 *         the users read before the failure having been passed to the sink already
+	 */
+	public static long read(ReadableByteChannel channel, int parallelism, Consumer<User> sink) throws IOException {
+		readHeader(channel);
+		ExecutorService decoders = Executors.newFixedThreadPool(parallelism, runnable -> {
+			Thread thread = new Thread(runnable, "user-import");
+			thread.setDaemon(true);
+			return thread;
+		});
+		Semaphore inFlight = new Semaphore(parallelism * RECORDS_IN_FLIGHT_PER_THREAD);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		long count = 0;
+		try {
+			ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+			boolean end = false;
+			while (!end && failure.get() == null) {
+				end = channel.read(chunk) < 0;
+				chunk.flip();
+				int length;
+				while ((length = nextRecordLength(chunk)) >= 0 && failure.get() == null) {
+					byte[] record = new byte[length];
+					chunk.get(record);
+					inFlight.acquire();
+					decoders.execute(() -> {
+						try {
+							sink.accept(decode(ByteBuffer.wrap(record)));
+						} catch (Throwable e) {
+							// an Error, such as running out of memory, must fail the import too
+							failure.compareAndSet(null, e);
+						} finally {
+							inFlight.release();
+						}
+					});
+					count++;
+				}
+				if (end && chunk.hasRemaining() && failure.get() == null) {
+					throw new IOException("Truncated user record at the end of the stream");
+				}
+				chunk = compact(chunk);
+			}
+			decoders.shutdown();
+			decoders.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("User import interrupted");
+		} finally {
+			decoders.shutdownNow();
+		}
+		if (failure.get() != null) {
+			throw new IOException("Could not import a user: " + failure.get().getMessage(), failure.get());
+		}
+		return count;
+	}
+
+	static byte[] encode(User user) {
+		synchronized (user) {
+			byte[] userName = utf8(user.getUserName());
+			byte[] phoneNumber = utf8(user.getPhoneNumber());
+			byte[] emailAddress = utf8(user.getEmailAddress());
+			UserRewardStore rewards = user.getUserRewardStore();
+			byte[][] attractionNames = new byte[rewards.size()][];
+			int rewardBytes = 0;
+			for (int i = 0; i < rewards.size(); i++) {
+				attractionNames[i] = utf8(attractionIndex.get(rewards.attractionOrdinal(i)).attractionName);
+				rewardBytes += 3 * Integer.BYTES + attractionNames[i].length;
+			}
+			byte[] history = LocationCodec.encode(user.getVisitedLocations());
+
+			ByteBuffer record = ByteBuffer.allocate(2 * Long.BYTES + stringBytes(userName) + stringBytes(phoneNumber)
+					+ stringBytes(emailAddress) + Long.BYTES + 5 * Integer.BYTES + history.length
+					+ Integer.BYTES + rewardBytes);
+			record.putLong(user.getUserId().getMostSignificantBits()).putLong(user.getUserId().getLeastSignificantBits());
+			putString(record, userName);
+			putString(record, phoneNumber);
+			putString(record, emailAddress);
+			Date latestLocationTimestamp = user.getLatestLocationTimestamp();
+			record.putLong(latestLocationTimestamp == null ? NO_TIMESTAMP : latestLocationTimestamp.getTime());
+			UserPreferences preferences = user.getUserPreferences();
+			record.putInt(preferences.getAttractionProximity())
+					.putInt(preferences.getTripDuration())
+					.putInt(preferences.getTicketQuantity())
+					.putInt(preferences.getNumberOfAdults())
+					.putInt(preferences.getNumberOfChildren());
+			record.put(history);
+			record.putInt(rewards.size());
+			for (int i = 0; i < rewards.size(); i++) {
+				putString(record, attractionNames[i]);
+				record.putInt(rewards.locationIndex(i)).putInt(rewards.rewardPoints(i));
+			}
+			return record.array();
+		}
+	}
+
+	static User decode(ByteBuffer record) {
+		try {
+			UUID userId = new UUID(record.getLong(), record.getLong());
+			User user = new User(userId, getString(record), getString(record), getString(record));
+			long latestLocationTimestamp = record.getLong();
+			if (latestLocationTimestamp != NO_TIMESTAMP) {
+				user.setLatestLocationTimestamp(new Date(latestLocationTimestamp));
+			}
+			UserPreferences preferences = new UserPreferences();
+			preferences.setAttractionProximity(record.getInt());
+			preferences.setTripDuration(record.getInt());
+			preferences.setTicketQuantity(record.getInt());
+			preferences.setNumberOfAdults(record.getInt());
+			preferences.setNumberOfChildren(record.getInt());
+			user.setUserPreferences(preferences);
+			for (VisitedLocation visitedLocation : LocationCodec.decode(record, userId)) {
+				user.addToVisitedLocations(visitedLocation);
+			}
+
+			int rewards = record.getInt();
+			for (int i = 0; i < rewards; i++) {
+				String attractionName = getString(record);
+				int attractionOrdinal = attractionIndex.ordinalOf(attractionName);
+				if (attractionOrdinal < 0) {
+					throw new IllegalArgumentException("Unknown attraction: " + attractionName);
+				}
+				int locationIndex = record.getInt();
+				if (locationIndex == UserRewardStore.NO_LOCATION) {
+					user.addDetachedUserReward(attractionOrdinal, record.getInt());
+				} else {
+					user.addUserReward(attractionOrdinal, locationIndex, record.getInt());
+				}
+			}
+			if (record.hasRemaining()) {
+				throw new IllegalArgumentException("Unexpected bytes after the record of " + user.getUserName());
+			}
+			return user;
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated user record", e);
+		}
+	}
+
+	/**
+	 * @return the length of the next record if the buffer holds it entirely, its length prefix
+	 *         being consumed, or -1
+	 */
+	private static int nextRecordLength(ByteBuffer chunk) throws IOException {
+		if (chunk.remaining() < Integer.BYTES) {
+			return -1;
+		}
+		int length = chunk.getInt(chunk.position());
+		if (length < 0 || length > MAX_RECORD_SIZE) {
+			throw new IOException("Malformed user record length: " + length);
+		}
+		if (chunk.remaining() - Integer.BYTES < length) {
+			return -1;
+		}
+		chunk.position(chunk.position() + Integer.BYTES);
+		return length;
+	}
+
+	/**
+	 * Moves the partial record left in the buffer to its start, growing the buffer if the
+	 * record, whose length {@link #nextRecordLength(ByteBuffer)} has validated, does not fit in it.
+	 */
+	private static ByteBuffer compact(ByteBuffer chunk) {
+		if (chunk.remaining() >= Integer.BYTES) {
+			int needed = Integer.BYTES + chunk.getInt(chunk.position());
+			if (needed > chunk.capacity()) {
+				return ByteBuffer.allocate(needed).put(chunk);
+			}
+		}
+		return chunk.compact();
+	}
+
+	private static void readHeader(ReadableByteChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+		while (header.hasRemaining()) {
+			if (channel.read(header) < 0) {
+				throw new IOException("Not a user stream: missing header");
+			}
+		}
+		header.flip();
+		int magic = header.getInt();
+		int version = header.getInt();
+		if (magic != MAGIC) {
+			throw new IOException("Not a user stream: bad magic number " + Integer.toHexString(magic));
+		}
+		if (version != VERSION) {
+			throw new IOException("Unsupported user stream version " + version);
+		}
+	}
+
+	private static void drain(WritableByteChannel channel, ByteBuffer chunk) throws IOException {
+		chunk.flip();
+		writeFully(channel, chunk);
+		chunk.clear();
+	}
+
+	private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static byte[] utf8(String value) {
+		return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static int stringBytes(byte[] value) {
+		return Integer.BYTES + (value == null ? 0 : value.length);
+	}
+
+	private static void putString(ByteBuffer buffer, byte[] value) {
+		if (value == null) {
+			buffer.putInt(NULL_STRING);
+		} else {
+			buffer.putInt(value.length).put(value);
+		}
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length == NULL_STRING) {
+			return null;
+		}
+		if (length < 0 || length > buffer.remaining()) {
+			throw new IllegalArgumentException("Malformed string length: " + length);
+		}
+		String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return value;
+	}
+}
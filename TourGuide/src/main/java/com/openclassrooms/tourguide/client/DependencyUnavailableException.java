@@ -0,0 +1,11 @@
+package com.openclassrooms.tourguide.client;
+
+/**
+ * Thrown when a call to an external dependency fails.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+	public DependencyUnavailableException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,23 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.UUID;
+
+import gpsUtil.GpsUtil;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Source of users' current locations, fronting the GpsUtil dependency.
+ */
+@FunctionalInterface
+public interface GpsUtilClient {
+
+	VisitedLocation getUserLocation(UUID userId);
+
+	/**
+	 * @param gpsUtil the GpsUtil library to delegate to
+	 * @return a client calling the library
+	 */
+	static GpsUtilClient of(GpsUtil gpsUtil) {
+		return gpsUtil::getUserLocation;
+	}
+}
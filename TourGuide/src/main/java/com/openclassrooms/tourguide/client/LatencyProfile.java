@@ -0,0 +1,81 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.SplittableRandom;
+
+/**
+ * Distribution of the latency of a simulated dependency call.
+ * <p>
+ * Profiles can be built from code or parsed from a property value:
+ * <ul>
+ *     <li>{@code none},</li>
+ *     <li>{@code fixed:<ms>},</li>
+ *     <li>{@code uniform:<minMs>:<maxMs>},</li>
+ *     <li>{@code lognormal:<medianMs>:<sigma>},</li>
+ *     <li>{@code bimodal:<fastMedianMs>:<slowMedianMs>:<slowProbability>}, two log-normal modes
+ *     modelling occasional tail spikes.</li>
+ * </ul>
+ * </p>
+ */
+@FunctionalInterface
+public interface LatencyProfile {
+
+	/**
+	 * Spread of each mode of a {@link #bimodal(double, double, double)} profile.
+	 */
+	double BIMODAL_SIGMA = 0.25;
+
+	/**
+	 * @param random source of randomness of the call
+	 * @return the latency to simulate, in milliseconds
+	 */
+	double sampleMillis(SplittableRandom random);
+
+	static LatencyProfile none() {
+		return random -> 0;
+	}
+
+	static LatencyProfile fixed(double millis) {
+		return random -> millis;
+	}
+
+	static LatencyProfile uniform(double minMillis, double maxMillis) {
+		return random -> minMillis + random.nextDouble() * (maxMillis - minMillis);
+	}
+
+	static LatencyProfile logNormal(double medianMillis, double sigma) {
+		return random -> medianMillis * Math.exp(sigma * random.nextGaussian());
+	}
+
+	static LatencyProfile bimodal(double fastMedianMillis, double slowMedianMillis, double slowProbability) {
+		LatencyProfile fast = logNormal(fastMedianMillis, BIMODAL_SIGMA);
+		LatencyProfile slow = logNormal(slowMedianMillis, BIMODAL_SIGMA);
+		return random -> random.nextDouble() < slowProbability ? slow.sampleMillis(random) : fast.sampleMillis(random);
+	}
+
+	/**
+	 * @param spec a profile description such as {@code lognormal:50:0.5}
+	 * @return the described profile
+	 * @throws IllegalArgumentException if the description is malformed
+	 */
+	static LatencyProfile parse(String spec) {
+		String[] parts = spec.trim().split(":");
+		try {
+			switch (parts[0]) {
+				case "none":
+					return none();
+				case "fixed":
+					return fixed(Double.parseDouble(parts[1]));
+				case "uniform":
+					return uniform(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+				case "lognormal":
+					return logNormal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+				case "bimodal":
+					return bimodal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]), Double.parseDouble(parts[3]));
+				default:
+					throw new IllegalArgumentException("Unknown latency profile: " + spec);
+			}
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			throw new IllegalArgumentException("Malformed latency profile: " + spec, e);
+		}
+	}
+}
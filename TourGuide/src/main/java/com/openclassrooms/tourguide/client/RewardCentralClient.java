@@ -0,0 +1,22 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.UUID;
+
+import rewardCentral.RewardCentral;
+
+/**
+ * Source of attraction reward points, fronting the RewardCentral dependency.
+ */
+@FunctionalInterface
+public interface RewardCentralClient {
+
+	int getAttractionRewardPoints(UUID attractionId, UUID userId);
+
+	/**
+	 * @param rewardCentral the RewardCentral library to delegate to
+	 * @return a client calling the library
+	 */
+	static RewardCentralClient of(RewardCentral rewardCentral) {
+		return rewardCentral::getAttractionRewardPoints;
+	}
+}
@@ -0,0 +1,79 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class of the local stand-ins for the external dependencies.
+ * <p>
+ * Every call draws its data, latency and failure from a {@link SplittableRandom} seeded
+ * from the simulation seed and the call's own arguments, so that two runs with the same
+ * seed return the same answers with the same latencies, whatever the thread interleaving.
+ * </p>
+ */
+public abstract class SimulatedDependency {
+	private final String name;
+	private final long seed;
+	private final LatencyProfile latencyProfile;
+	private final double errorRate;
+
+	/**
+	 * @param name name of the simulated dependency, used in error messages
+	 * @param seed seed of every random draw
+	 * @param latencyProfile distribution of the latency of each call
+	 * @param errorRate probability, between 0 and 1, that a call fails with a {@link DependencyUnavailableException}
+	 */
+	protected SimulatedDependency(String name, long seed, LatencyProfile latencyProfile, double errorRate) {
+		this.name = name;
+		this.seed = seed;
+		this.latencyProfile = latencyProfile;
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * @param keys values identifying the call
+	 * @return a random generator dedicated to the call
+	 */
+	protected SplittableRandom randomFor(long... keys) {
+		long hash = seed;
+		for (long key : keys) {
+			hash = mix(hash ^ key);
+		}
+		return new SplittableRandom(hash);
+	}
+
+	protected static long keyOf(UUID uuid) {
+		return mix(uuid.getMostSignificantBits()) ^ uuid.getLeastSignificantBits();
+	}
+
+	/**
+	 * Waits for the simulated latency, then fails the call if it was drawn to fail.
+	 *
+	 * @param random the random generator of the call
+	 * @throws DependencyUnavailableException if the call was drawn to fail or the thread was interrupted
+	 */
+	protected void simulateCall(SplittableRandom random) {
+		long latencyNanos = (long) (latencyProfile.sampleMillis(random) * 1_000_000);
+		if (latencyNanos > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(latencyNanos);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DependencyUnavailableException(name + " call interrupted");
+			}
+		}
+		if (random.nextDouble() < errorRate) {
+			throw new DependencyUnavailableException(name + " call failed (simulated error)");
+		}
+	}
+
+	/**
+	 * SplitMix64 finalizer.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
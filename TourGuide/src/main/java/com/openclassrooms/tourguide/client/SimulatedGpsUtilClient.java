@@ -0,0 +1,38 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Local stand-in for GpsUtil returning seeded random locations.
+ * <p>
+ * The n-th location returned for a user only depends on the seed, the user and n.
+ * </p>
+ */
+public class SimulatedGpsUtilClient extends SimulatedDependency implements GpsUtilClient {
+	private static final double MAX_LATITUDE = 85.05112878;
+
+	private final Map<UUID, AtomicInteger> callsByUser = new ConcurrentHashMap<>();
+
+	public SimulatedGpsUtilClient(long seed, LatencyProfile latencyProfile, double errorRate) {
+		super("GpsUtil", seed, latencyProfile, errorRate);
+	}
+
+	@Override
+	public VisitedLocation getUserLocation(UUID userId) {
+		int call = callsByUser.computeIfAbsent(userId, id -> new AtomicInteger()).getAndIncrement();
+		SplittableRandom random = randomFor(keyOf(userId), call);
+		simulateCall(random);
+
+		double longitude = random.nextDouble(-180, 180);
+		double latitude = random.nextDouble(-MAX_LATITUDE, MAX_LATITUDE);
+		return new VisitedLocation(userId, new Location(latitude, longitude), new Date());
+	}
+}
@@ -0,0 +1,25 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Local stand-in for RewardCentral.
+ * <p>
+ * The points of an attraction for a user only depend on the seed, the attraction and the user.
+ * </p>
+ */
+public class SimulatedRewardCentralClient extends SimulatedDependency implements RewardCentralClient {
+
+	public SimulatedRewardCentralClient(long seed, LatencyProfile latencyProfile, double errorRate) {
+		super("RewardCentral", seed, latencyProfile, errorRate);
+	}
+
+	@Override
+	public int getAttractionRewardPoints(UUID attractionId, UUID userId) {
+		SplittableRandom random = randomFor(keyOf(attractionId), keyOf(userId));
+		simulateCall(random);
+
+		return random.nextInt(1, 1000);
+	}
+}
@@ -0,0 +1,44 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import tripPricer.Provider;
+
+/**
+ * Local stand-in for TripPricer, pricing deals with the same formula as the library.
+ * <p>
+ * The deals returned only depend on the seed and the call's arguments.
+ * </p>
+ */
+public class SimulatedTripPricerClient extends SimulatedDependency implements TripPricerClient {
+	private static final int DEALS_PER_CALL = 5;
+	private static final List<String> PROVIDER_NAMES = List.of("Holiday Travels", "Enterprize Ventures Limited",
+			"Sunny Days", "FlyAway Trips", "United Partners Vacations", "Dream Trips", "Live Free",
+			"Dancing Waves Cruselines and Partners", "AdventureCo", "Cure-Your-Blues");
+
+	public SimulatedTripPricerClient(long seed, LatencyProfile latencyProfile, double errorRate) {
+		super("TripPricer", seed, latencyProfile, errorRate);
+	}
+
+	@Override
+	public List<Provider> getPrice(String apiKey, UUID attendeeId, int adults, int children, int nightsStay,
+								   int rewardsPoints) {
+		SplittableRandom random = randomFor(keyOf(attendeeId), adults, children, nightsStay, rewardsPoints);
+		simulateCall(random);
+
+		List<String> names = new ArrayList<>(PROVIDER_NAMES);
+		List<Provider> providers = new ArrayList<>(DEALS_PER_CALL);
+		for (int i = 0; i < DEALS_PER_CALL; i++) {
+			int multiple = random.nextInt(100, 700);
+			// integer division, as in the library
+			double childrenDiscount = (double) (children / 3);
+			double price = Math.max(0, multiple * adults + multiple * childrenDiscount * nightsStay + 0.99 - rewardsPoints);
+			String name = names.remove(random.nextInt(names.size()));
+			providers.add(new Provider(new UUID(random.nextLong(), random.nextLong()), name, price));
+		}
+		return providers;
+	}
+}
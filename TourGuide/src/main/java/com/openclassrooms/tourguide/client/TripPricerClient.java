@@ -0,0 +1,24 @@
+package com.openclassrooms.tourguide.client;
+
+import java.util.List;
+import java.util.UUID;
+
+import tripPricer.Provider;
+import tripPricer.TripPricer;
+
+/**
+ * Source of trip deals, fronting the TripPricer dependency.
+ */
+@FunctionalInterface
+public interface TripPricerClient {
+
+	List<Provider> getPrice(String apiKey, UUID attendeeId, int adults, int children, int nightsStay, int rewardsPoints);
+
+	/**
+	 * @param tripPricer the TripPricer library to delegate to
+	 * @return a client calling the library
+	 */
+	static TripPricerClient of(TripPricer tripPricer) {
+		return tripPricer::getPrice;
+	}
+}
@@ -0,0 +1,6 @@
+package com.openclassrooms.tourguide.dto;
+
+public record AttractionTrafficDto(String attractionName,
+                                   long visits,
+                                   long rewardsGranted,
+                                   long rewardPointsGranted) {}
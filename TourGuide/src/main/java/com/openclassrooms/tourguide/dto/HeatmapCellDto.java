@@ -0,0 +1,5 @@
+package com.openclassrooms.tourguide.dto;
+
+public record HeatmapCellDto(double latitude,
+                             double longitude,
+                             long positions) {}
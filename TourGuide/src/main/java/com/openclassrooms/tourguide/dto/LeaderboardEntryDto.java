@@ -0,0 +1,5 @@
+package com.openclassrooms.tourguide.dto;
+
+public record LeaderboardEntryDto(int rank,
+                                  String userName,
+                                  int rewardPoints) {}
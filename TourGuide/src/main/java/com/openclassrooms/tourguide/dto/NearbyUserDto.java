@@ -0,0 +1,11 @@
+package com.openclassrooms.tourguide.dto;
+
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+
+public record NearbyUserDto(String userName,
+                            UUID userId,
+                            Location location,
+                            double distance,
+                            long timeVisited) {}
@@ -0,0 +1,138 @@
+package com.openclassrooms.tourguide.geo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+/**
+ * Immutable spatial index over the attraction catalog.
+ * <p>
+ * Attractions are referred to by their ordinal, i.e. their position in the list the
+ * index was built from. Each attraction is bucketed into its {@link GeoGrid} cell so a
+ * radius query only tests the attractions of the cells around the searched location,
+ * instead of computing the distance to every attraction.
+ * </p>
+ */
+public class AttractionIndex {
+
+	private final List<Attraction> attractions;
+	private final double[] latitudes;
+	private final double[] longitudes;
+	private final Location[] locations;
+	private final Map<Integer, int[]> ordinalsByCell;
+	private final Map<String, Integer> ordinalsByName;
+
+	public AttractionIndex(List<Attraction> attractions) {
+		this.attractions = List.copyOf(attractions);
+		int size = this.attractions.size();
+		this.latitudes = new double[size];
+		this.longitudes = new double[size];
+		this.locations = new Location[size];
+
+		Map<String, Integer> names = new HashMap<>();
+		Map<Integer, List<Integer>> buckets = new HashMap<>();
+		for (int ordinal = 0; ordinal < size; ordinal++) {
+			Attraction attraction = this.attractions.get(ordinal);
+			latitudes[ordinal] = attraction.latitude;
+			longitudes[ordinal] = attraction.longitude;
+			locations[ordinal] = new Location(attraction.latitude, attraction.longitude);
+			names.put(attraction.attractionName, ordinal);
+			buckets.computeIfAbsent(GeoGrid.cellOf(attraction.latitude, attraction.longitude), cell -> new ArrayList<>())
+					.add(ordinal);
+		}
+
+		Map<Integer, int[]> cells = new HashMap<>();
+		buckets.forEach((cell, ordinals) -> cells.put(cell, ordinals.stream().mapToInt(Integer::intValue).toArray()));
+		this.ordinalsByCell = Map.copyOf(cells);
+		this.ordinalsByName = Map.copyOf(names);
+	}
+
+	public int size() {
+		return attractions.size();
+	}
+
+	public Attraction get(int ordinal) {
+		return attractions.get(ordinal);
+	}
+
+	/**
+	 * @param attractionName the name of an attraction of the catalog
+	 * @return the ordinal of the attraction, or -1 if the catalog has no attraction with this name
+	 */
+	public int ordinalOf(String attractionName) {
+		return ordinalsByName.getOrDefault(attractionName, -1);
+	}
+
+	public double latitude(int ordinal) {
+		return latitudes[ordinal];
+	}
+
+	public double longitude(int ordinal) {
+		return longitudes[ordinal];
+	}
+
+	/**
+	 * @return the location of the attraction, shared by every caller as {@link Location} is immutable
+	 */
+	public Location location(int ordinal) {
+		return locations[ordinal];
+	}
+
+	public double distance(int ordinal, double latitude, double longitude) {
+		return GeoGrid.distance(latitude, longitude, latitudes[ordinal], longitudes[ordinal]);
+	}
+
+	/**
+	 * Calls {@code action} with the ordinal of every attraction lying within
+	 * {@code radiusMiles} of the given location.
+	 *
+	 * @param latitude latitude of the searched location
+	 * @param longitude longitude of the searched location
+	 * @param radiusMiles search radius in miles
+	 * @param action callback receiving each matching ordinal
+	 */
+	public void forEachWithin(double latitude, double longitude, double radiusMiles, IntConsumer action) {
+		forEachCandidate(latitude, longitude, radiusMiles, ordinal -> {
+			if (distance(ordinal, latitude, longitude) <= radiusMiles) {
+				action.accept(ordinal);
+			}
+		});
+	}
+
+	/**
+	 * Calls {@code action} with the ordinal of every attraction whose cell intersects the
+	 * bounding box of the search circle. Candidates may lie outside the radius.
+	 */
+	public void forEachCandidate(double latitude, double longitude, double radiusMiles, IntConsumer action) {
+		GeoGrid.CellRange range = GeoGrid.cellsAround(latitude, longitude, radiusMiles);
+
+		if (range.cellCount() > ordinalsByCell.size()) {
+			// fewer occupied cells than cells in the box: walk the occupied ones instead
+			ordinalsByCell.forEach((cell, ordinals) -> {
+				if (range.contains(cell)) {
+					for (int ordinal : ordinals) {
+						action.accept(ordinal);
+					}
+				}
+			});
+			return;
+		}
+
+		int columns = range.columnCount();
+		for (int row = range.fromRow(); row <= range.toRow(); row++) {
+			for (int i = 0; i < columns; i++) {
+				int[] ordinals = ordinalsByCell.get(GeoGrid.key(row, (range.fromColumn() + i) % GeoGrid.COLUMNS));
+				if (ordinals != null) {
+					for (int ordinal : ordinals) {
+						action.accept(ordinal);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.openclassrooms.tourguide.geo;
+
+/**
+ * Fixed-resolution latitude/longitude grid used to bucket locations into cells.
+ * <p>
+ * Cells are identified by a single int key ({@code row * COLUMNS + column}) so they can be
+ * used as map keys or array indices without allocating. Longitudes wrap around the
+ * antimeridian, latitudes are clamped to the poles.
+ * </p>
+ */
+public final class GeoGrid {
+
+	/**
+	 * Side of a cell, in degrees.
+	 */
+	public static final double CELL_SIZE_DEGREES = 1.0;
+
+	public static final int ROWS = (int) Math.ceil(180 / CELL_SIZE_DEGREES);
+	public static final int COLUMNS = (int) Math.ceil(360 / CELL_SIZE_DEGREES);
+
+	/**
+	 * Conversion factor from nautical miles to statute miles.
+	 */
+	private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+
+	/**
+	 * Statute miles spanned by one degree of latitude (one degree of arc is 60 nautical miles).
+	 */
+	public static final double MILES_PER_DEGREE = 60 * STATUTE_MILES_PER_NAUTICAL_MILE;
+
+	private GeoGrid() {
+	}
+
+	public static int rowOf(double latitude) {
+		int row = (int) Math.floor((latitude + 90) / CELL_SIZE_DEGREES);
+		return Math.max(0, Math.min(ROWS - 1, row));
+	}
+
+	public static int columnOf(double longitude) {
+		int column = (int) Math.floor((longitude + 180) / CELL_SIZE_DEGREES);
+		return Math.floorMod(column, COLUMNS);
+	}
+
+	public static int cellOf(double latitude, double longitude) {
+		return key(rowOf(latitude), columnOf(longitude));
+	}
+
+	public static int key(int row, int column) {
+		return row * COLUMNS + column;
+	}
+
+	public static int rowOfCell(int cell) {
+		return cell / COLUMNS;
+	}
+
+	public static int columnOfCell(int cell) {
+		return cell % COLUMNS;
+	}
+
+	public static double centerLatitude(int cell) {
+		return -90 + (rowOfCell(cell) + 0.5) * CELL_SIZE_DEGREES;
+	}
+
+	public static double centerLongitude(int cell) {
+		return -180 + (columnOfCell(cell) + 0.5) * CELL_SIZE_DEGREES;
+	}
+
+	/**
+	 * Great-circle distance in statute miles between two points given in degrees,
+	 * using the spherical law of cosines.
+	 */
+	public static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+		double lat1 = Math.toRadians(latitude1);
+		double lon1 = Math.toRadians(longitude1);
+		double lat2 = Math.toRadians(latitude2);
+		double lon2 = Math.toRadians(longitude2);
+
+		double angle = Math.acos(Math.sin(lat1) * Math.sin(lat2)
+				+ Math.cos(lat1) * Math.cos(lat2) * Math.cos(lon1 - lon2));
+
+		return MILES_PER_DEGREE * Math.toDegrees(angle);
+	}
+
+	/**
+	 * Computes the range of cells that may contain a point within {@code radiusMiles}
+	 * of the given location.
+	 *
+	 * @return the bounding box, flagged as covering every longitude when the radius
+	 *         reaches a pole or spans half the globe
+	 */
+	public static CellRange cellsAround(double latitude, double longitude, double radiusMiles) {
+		double latitudeSpan = radiusMiles / MILES_PER_DEGREE;
+		double minLatitude = latitude - latitudeSpan;
+		double maxLatitude = latitude + latitudeSpan;
+		int minRow = rowOf(minLatitude);
+		int maxRow = rowOf(maxLatitude);
+
+		double widestLatitude = Math.max(Math.abs(minLatitude), Math.abs(maxLatitude));
+		if (widestLatitude >= 90) {
+			return new CellRange(minRow, maxRow, 0, COLUMNS - 1, true);
+		}
+		double longitudeSpan = latitudeSpan / Math.cos(Math.toRadians(widestLatitude));
+		if (longitudeSpan >= 180 - CELL_SIZE_DEGREES) {
+			return new CellRange(minRow, maxRow, 0, COLUMNS - 1, true);
+		}
+		return new CellRange(minRow, maxRow, columnOf(longitude - longitudeSpan),
+				columnOf(longitude + longitudeSpan), false);
+	}
+
+	/**
+	 * Rectangular block of cells. When {@code fromColumn > toColumn} the block wraps
+	 * around the antimeridian.
+	 */
+	public record CellRange(int fromRow, int toRow, int fromColumn, int toColumn, boolean allColumns) {
+
+		public int columnCount() {
+			if (allColumns) {
+				return COLUMNS;
+			}
+			return Math.floorMod(toColumn - fromColumn, COLUMNS) + 1;
+		}
+
+		public long cellCount() {
+			return (long) (toRow - fromRow + 1) * columnCount();
+		}
+
+		public boolean contains(int cell) {
+			int row = rowOfCell(cell);
+			if (row < fromRow || row > toRow) {
+				return false;
+			}
+			if (allColumns) {
+				return true;
+			}
+			return Math.floorMod(columnOfCell(cell) - fromColumn, COLUMNS) < columnCount();
+		}
+	}
+}
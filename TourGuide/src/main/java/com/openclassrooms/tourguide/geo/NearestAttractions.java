@@ -0,0 +1,107 @@
+package com.openclassrooms.tourguide.geo;
+
+/**
+ * Reusable buffer selecting the k attractions nearest to a location.
+ * <p>
+ * The selection keeps a fixed-size max-heap of attraction ordinals keyed by distance in two
+ * primitive arrays, then sorts it in place, so a query allocates nothing. An instance is not
+ * thread-safe and is meant to be kept per thread and reused across queries.
+ * </p>
+ */
+public class NearestAttractions {
+	private final int[] ordinals;
+	private final double[] distances;
+	private int count;
+
+	/**
+	 * @param k the maximum number of attractions selected by a query
+	 */
+	public NearestAttractions(int k) {
+		this.ordinals = new int[k];
+		this.distances = new double[k];
+	}
+
+	/**
+	 * Selects the attractions of the index nearest to the location, replacing the previous selection.
+	 *
+	 * @return the number of attractions selected, k unless the index holds fewer attractions
+	 */
+	public int select(AttractionIndex attractionIndex, double latitude, double longitude) {
+		count = 0;
+		int k = ordinals.length;
+		for (int ordinal = 0; ordinal < attractionIndex.size(); ordinal++) {
+			double distance = attractionIndex.distance(ordinal, latitude, longitude);
+			if (count < k) {
+				ordinals[count] = ordinal;
+				distances[count] = distance;
+				siftUp(count++);
+			} else if (distance < distances[0]) {
+				ordinals[0] = ordinal;
+				distances[0] = distance;
+				siftDown(0, count);
+			}
+		}
+		// heap sort: repeatedly move the farthest remaining attraction to the end
+		for (int end = count - 1; end > 0; end--) {
+			swap(0, end);
+			siftDown(0, end);
+		}
+		return count;
+	}
+
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * @param i rank of the attraction in the selection, 0 being the nearest
+	 */
+	public int ordinal(int i) {
+		return ordinals[i];
+	}
+
+	/**
+	 * @param i rank of the attraction in the selection, 0 being the nearest
+	 * @return its distance in miles to the searched location
+	 */
+	public double distance(int i) {
+		return distances[i];
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (distances[parent] >= distances[i]) {
+				return;
+			}
+			swap(parent, i);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i, int size) {
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				return;
+			}
+			if (child + 1 < size && distances[child + 1] > distances[child]) {
+				child++;
+			}
+			if (distances[i] >= distances[child]) {
+				return;
+			}
+			swap(i, child);
+			i = child;
+		}
+	}
+
+	private void swap(int i, int j) {
+		int ordinal = ordinals[i];
+		ordinals[i] = ordinals[j];
+		ordinals[j] = ordinal;
+		double distance = distances[i];
+		distances[i] = distances[j];
+		distances[j] = distance;
+	}
+}
@@ -0,0 +1,55 @@
+package com.openclassrooms.tourguide.geo;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-cell candidate attractions for a given proximity radius.
+ * <p>
+ * The candidates of a cell are the attractions whose proximity circle overlaps the cell,
+ * i.e. every attraction a location of that cell could be rewarded for. They are computed
+ * once per cell, the first time a location falls into it, and reused afterwards.
+ * </p>
+ */
+public class ProximityCells {
+	private static final int[] NO_CANDIDATES = new int[0];
+
+	private final AttractionIndex attractionIndex;
+	private final double radiusMiles;
+	private final Map<Integer, int[]> candidatesByCell = new ConcurrentHashMap<>();
+
+	public ProximityCells(AttractionIndex attractionIndex, double radiusMiles) {
+		this.attractionIndex = attractionIndex;
+		this.radiusMiles = radiusMiles;
+	}
+
+	public double getRadiusMiles() {
+		return radiusMiles;
+	}
+
+	/**
+	 * @param cell a {@link GeoGrid} cell key
+	 * @return the ordinals of the attractions within the radius of at least one point of the cell
+	 */
+	public int[] candidates(int cell) {
+		return candidatesByCell.computeIfAbsent(cell, this::computeCandidates);
+	}
+
+	private int[] computeCandidates(int cell) {
+		double latitude = GeoGrid.centerLatitude(cell);
+		double longitude = GeoGrid.centerLongitude(cell);
+		// any point of the cell is at most halfDiagonal away from its center
+		double half = GeoGrid.CELL_SIZE_DEGREES / 2;
+		double halfDiagonal = Math.max(
+				GeoGrid.distance(latitude, longitude, Math.min(90, latitude + half), longitude + half),
+				GeoGrid.distance(latitude, longitude, Math.max(-90, latitude - half), longitude + half));
+
+		int[] candidates = new int[attractionIndex.size()];
+		int[] count = new int[1];
+		attractionIndex.forEachWithin(latitude, longitude, radiusMiles + halfDiagonal,
+				ordinal -> candidates[count[0]++] = ordinal);
+
+		return count[0] == 0 ? NO_CANDIDATES : Arrays.copyOf(candidates, count[0]);
+	}
+}
@@ -2,4 +2,8 @@ package com.openclassrooms.tourguide.helper;
 
 public class Constants {
     public final static int NB_OF_NEARBY_ATTRACTIONS = 5;
+    /**
+     * Distance in miles a user must move before their materialized nearby attractions are recomputed.
+     */
+    public final static double NEARBY_ATTRACTIONS_REFRESH_MILES = 0.25;
 }
@@ -0,0 +1,43 @@
+package com.openclassrooms.tourguide.history;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import com.openclassrooms.tourguide.service.TourGuideService;
+
+/**
+ * Tiered location history, enabled by {@code tourguide.history.archive.enabled=true}: each
+ * user keeps {@code tourguide.history.archive.hot-locations} recent locations on the heap, and
+ * older ones are archived to segment files of {@code tourguide.history.archive.segment-size}
+ * in {@code tourguide.history.archive.directory}. At least one recent location must be kept.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tourguide.history.archive.enabled", havingValue = "true")
+public class HistoryArchiveConfiguration {
+
+	@Value("${tourguide.history.archive.directory:history}")
+	private Path directory;
+
+	@Value("${tourguide.history.archive.hot-locations:1000}")
+	private int hotLocations;
+
+	@Value("${tourguide.history.archive.segment-size:64MB}")
+	private DataSize segmentSize;
+
+	@Bean
+	public HistorySegments getHistorySegments(TourGuideService tourGuideService) throws IOException {
+		if (hotLocations < 1) {
+			throw new IllegalArgumentException(
+					"tourguide.history.archive.hot-locations must be at least 1, was " + hotLocations);
+		}
+		HistorySegments segments = new HistorySegments(directory, (int) segmentSize.toBytes());
+		tourGuideService.setHistoryArchive(segments, hotLocations);
+		return segments;
+	}
+}
@@ -0,0 +1,162 @@
+package com.openclassrooms.tourguide.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only store of the archived history blocks of every user, kept in memory-mapped
+ * segment files so that the operating system, not the heap, holds cold history.
+ * <p>
+ * A block is addressed by its segment and offset packed in a long. Segments are created in
+ * the directory as needed and deleted on {@link #close()}: the store only outlives the heap
+ * objects referencing it for the lifetime of the application.
+ * </p>
+ * <p>
+ * The blocks of a cleared history are {@linkplain #release(long, int) released}. Space is
+ * reclaimed a segment at a time: once every block of a segment is released, the segment is
+ * unmapped and its file deleted, or, for the segment being written, written over from its
+ * start. A segment still holding one live block keeps its whole file.
+ * </p>
+ */
+public class HistorySegments implements AutoCloseable {
+	public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+	private final Logger logger = LoggerFactory.getLogger(HistorySegments.class);
+	private final Path directory;
+	private final String prefix = "history-" + UUID.randomUUID();
+	private final int segmentSize;
+	private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+	private int[] liveBytes = new int[0];
+	private int position;
+
+	/**
+	 * @param directory the directory holding the segment files
+	 * @param segmentSize the size of each segment file, bounding the size of a block
+	 */
+	public HistorySegments(Path directory, int segmentSize) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Appends a block.
+	 *
+	 * @param block the encoded block
+	 * @return the address of the block
+	 */
+	public synchronized long write(byte[] block) {
+		if (block.length > segmentSize) {
+			throw new IllegalArgumentException("Block of " + block.length + " bytes exceeds the segment size");
+		}
+		if (segments.length == 0 || position + block.length > segmentSize) {
+			addSegment();
+		}
+		int segment = segments.length - 1;
+		segments[segment].put(position, block);
+		long address = ((long) segment << 32) | position;
+		position += block.length;
+		liveBytes[segment] += block.length;
+		return address;
+	}
+
+	/**
+	 * Releases a block that will not be read any more, reclaiming its segment once every block
+	 * of the segment is released.
+	 *
+	 * @param address the address returned by {@link #write(byte[])}
+	 * @param length the length of the block
+	 */
+	public synchronized void release(long address, int length) {
+		int segment = (int) (address >>> 32);
+		liveBytes[segment] -= length;
+		if (liveBytes[segment] > 0) {
+			return;
+		}
+		if (segment == segments.length - 1) {
+			position = 0;
+			return;
+		}
+		MappedByteBuffer[] remaining = segments.clone();
+		remaining[segment] = null;
+		segments = remaining;
+		deleteSegment(segment);
+	}
+
+	/**
+	 * @param address the address returned by {@link #write(byte[])}
+	 * @param length the length of the block
+	 * @return a buffer over the block, positioned at its start
+	 */
+	public ByteBuffer read(long address, int length) {
+		return segments[(int) (address >>> 32)].slice((int) address, length);
+	}
+
+	/**
+	 * @return the size of the blocks written and not released
+	 */
+	public synchronized long getLiveBytes() {
+		long bytes = 0;
+		for (int live : liveBytes) {
+			bytes += live;
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return the number of segment files currently mapped
+	 */
+	public synchronized int getSegmentCount() {
+		int count = 0;
+		for (MappedByteBuffer segment : segments) {
+			if (segment != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public synchronized void close() {
+		for (int segment = 0; segment < segments.length; segment++) {
+			if (segments[segment] != null) {
+				deleteSegment(segment);
+			}
+		}
+	}
+
+	private void deleteSegment(int segment) {
+		try {
+			Files.deleteIfExists(segmentFile(segment));
+		} catch (IOException e) {
+			logger.warn("Could not delete history segment {}: {}", segmentFile(segment), e.getMessage());
+		}
+	}
+
+	private void addSegment() {
+		Path file = segmentFile(segments.length);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+			MappedByteBuffer[] grown = Arrays.copyOf(segments, segments.length + 1);
+			grown[segments.length] = segment;
+			segments = grown;
+			liveBytes = Arrays.copyOf(liveBytes, grown.length);
+			position = 0;
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not create history segment " + file, e);
+		}
+	}
+
+	private Path segmentFile(int segment) {
+		return directory.resolve(prefix + "-" + segment + ".seg");
+	}
+}
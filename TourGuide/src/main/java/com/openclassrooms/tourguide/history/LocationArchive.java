@@ -0,0 +1,132 @@
+package com.openclassrooms.tourguide.history;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * The archived, oldest part of one user's history: the addresses in {@link HistorySegments}
+ * of its encoded blocks, in history order, with the time range each block covers. Blocks are
+ * only decoded when read.
+ */
+final class LocationArchive {
+	private final HistorySegments segments;
+	private long[] addresses = new long[4];
+	private int[] lengths = new int[4];
+	private int[] ends = new int[4];
+	private long[] minTimes = new long[4];
+	private long[] maxTimes = new long[4];
+	private boolean[] ordered = new boolean[4];
+	private int blocks;
+
+	LocationArchive(HistorySegments segments) {
+		this.segments = segments;
+	}
+
+	void append(List<VisitedLocation> block) {
+		byte[] encoded = LocationCodec.encode(block);
+		if (blocks == addresses.length) {
+			addresses = Arrays.copyOf(addresses, blocks * 2);
+			lengths = Arrays.copyOf(lengths, blocks * 2);
+			ends = Arrays.copyOf(ends, blocks * 2);
+			minTimes = Arrays.copyOf(minTimes, blocks * 2);
+			maxTimes = Arrays.copyOf(maxTimes, blocks * 2);
+			ordered = Arrays.copyOf(ordered, blocks * 2);
+		}
+		long minTime = Long.MAX_VALUE;
+		long maxTime = Long.MIN_VALUE;
+		boolean inTimeOrder = true;
+		for (VisitedLocation visitedLocation : block) {
+			long time = visitedLocation.timeVisited.getTime();
+			inTimeOrder &= time >= maxTime;
+			minTime = Math.min(minTime, time);
+			maxTime = Math.max(maxTime, time);
+		}
+		addresses[blocks] = segments.write(encoded);
+		lengths[blocks] = encoded.length;
+		ends[blocks] = size() + block.size();
+		minTimes[blocks] = minTime;
+		maxTimes[blocks] = maxTime;
+		ordered[blocks] = inTimeOrder;
+		blocks++;
+	}
+
+	int blocks() {
+		return blocks;
+	}
+
+	long minTime(int block) {
+		return minTimes[block];
+	}
+
+	long maxTime(int block) {
+		return maxTimes[block];
+	}
+
+	/**
+	 * @return true if the locations of the block are in ascending time order
+	 */
+	boolean isOrdered(int block) {
+		return ordered[block];
+	}
+
+	/**
+	 * @param fromMillis the start of a time window, inclusive
+	 * @param toMillis the end of the time window, inclusive
+	 * @return the blocks whose time range overlaps the window, by ascending start time
+	 */
+	int[] blocksBetween(long fromMillis, long toMillis) {
+		return IntStream.range(0, blocks)
+				.filter(block -> minTimes[block] <= toMillis && maxTimes[block] >= fromMillis)
+				.boxed()
+				.sorted(Comparator.comparingLong(block -> minTimes[block]))
+				.mapToInt(Integer::intValue)
+				.toArray();
+	}
+
+	/**
+	 * @return the number of archived locations
+	 */
+	int size() {
+		return blocks == 0 ? 0 : ends[blocks - 1];
+	}
+
+	/**
+	 * Releases every block in the segments. The archive must not be read afterwards.
+	 */
+	void release() {
+		for (int i = 0; i < blocks; i++) {
+			segments.release(addresses[i], lengths[i]);
+		}
+		blocks = 0;
+	}
+
+	long encodedBytes() {
+		long bytes = 0;
+		for (int i = 0; i < blocks; i++) {
+			bytes += lengths[i];
+		}
+		return bytes;
+	}
+
+	/**
+	 * @param index the index of an archived location
+	 * @return the block holding it
+	 */
+	int blockOf(int index) {
+		int found = Arrays.binarySearch(ends, 0, blocks, index);
+		return found >= 0 ? found + 1 : -found - 1;
+	}
+
+	int blockStart(int block) {
+		return block == 0 ? 0 : ends[block - 1];
+	}
+
+	VisitedLocation[] decode(int block, UUID userId) {
+		return LocationCodec.decode(segments.read(addresses[block], lengths[block]), userId);
+	}
+}
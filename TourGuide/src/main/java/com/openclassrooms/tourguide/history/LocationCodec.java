@@ -0,0 +1,132 @@
+package com.openclassrooms.tourguide.history;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Compact encoding of a block of consecutive locations of one user.
+ * <p>
+ * Coordinates are quantized to {@value #COORDINATE_SCALE}ths of a degree, about a centimetre,
+ * and stored as deltas from the previous location. Timestamps are stored as the change of the
+ * delta from the previous location, which is zero for a regular tracking period. Every value
+ * is zigzag- then varint-encoded, so a slow-moving user's location takes a few bytes instead of
+ * a {@link VisitedLocation} object graph.
+ * </p>
+ */
+public final class LocationCodec {
+	static final double COORDINATE_SCALE = 1e7;
+	private static final int MIN_LOCATION_BYTES = 3;
+
+	private LocationCodec() {
+	}
+
+	/**
+	 * @param locations the locations to encode
+	 * @return the encoded block
+	 */
+	public static byte[] encode(List<VisitedLocation> locations) {
+		Output output = new Output(locations.size() * 6 + 16);
+		output.writeVarint(locations.size());
+		long previousTime = 0;
+		long previousDelta = 0;
+		long previousLatitude = 0;
+		long previousLongitude = 0;
+		for (VisitedLocation visitedLocation : locations) {
+			long time = visitedLocation.timeVisited.getTime();
+			long latitude = quantize(visitedLocation.location.latitude);
+			long longitude = quantize(visitedLocation.location.longitude);
+			long delta = time - previousTime;
+			output.writeVarint(zigzag(delta - previousDelta));
+			output.writeVarint(zigzag(latitude - previousLatitude));
+			output.writeVarint(zigzag(longitude - previousLongitude));
+			previousTime = time;
+			previousDelta = delta;
+			previousLatitude = latitude;
+			previousLongitude = longitude;
+		}
+		return output.toByteArray();
+	}
+
+	/**
+	 * @param block an encoded block, read from its position
+	 * @param userId the user the locations belong to
+	 * @return the decoded locations, in encoding order
+	 * @throws IllegalArgumentException if the block announces more locations than it can hold
+	 */
+	public static VisitedLocation[] decode(ByteBuffer block, UUID userId) {
+		long count = readVarint(block);
+		// each location takes at least one byte per varint
+		if (count < 0 || count > block.remaining() / MIN_LOCATION_BYTES) {
+			throw new IllegalArgumentException("Location block announces " + count + " locations in "
+					+ block.remaining() + " bytes");
+		}
+		VisitedLocation[] locations = new VisitedLocation[(int) count];
+		long time = 0;
+		long delta = 0;
+		long latitude = 0;
+		long longitude = 0;
+		for (int i = 0; i < locations.length; i++) {
+			delta += unzigzag(readVarint(block));
+			time += delta;
+			latitude += unzigzag(readVarint(block));
+			longitude += unzigzag(readVarint(block));
+			locations[i] = new VisitedLocation(userId,
+					new Location(latitude / COORDINATE_SCALE, longitude / COORDINATE_SCALE), new Date(time));
+		}
+		return locations;
+	}
+
+	static long quantize(double coordinate) {
+		return Math.round(coordinate * COORDINATE_SCALE);
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static long readVarint(ByteBuffer buffer) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	private static final class Output {
+		private byte[] bytes;
+		private int size;
+
+		Output(int capacity) {
+			bytes = new byte[capacity];
+		}
+
+		void writeVarint(long value) {
+			if (size + 10 > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + 10));
+			}
+			while ((value & ~0x7FL) != 0) {
+				bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[size++] = (byte) value;
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(bytes, size);
+		}
+	}
+}
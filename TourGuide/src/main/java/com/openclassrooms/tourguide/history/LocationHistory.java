@@ -0,0 +1,368 @@
+package com.openclassrooms.tourguide.history;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.UUID;
+
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Location history of a user, in the order locations were added.
+ * <p>
+ * All locations are kept on the heap until an archive is enabled with
+ * {@link #enableArchive(HistorySegments, int)}. From then on, only the most recent locations,
+ * which the reward path reads, stay on the heap: each time {@value #BLOCK_SIZE} more than the
+ * hot limit are held, the oldest {@value #BLOCK_SIZE} are encoded with {@link LocationCodec}
+ * into the segments. Indexes are not affected by archiving, so rewards keep referring to their
+ * location by index. Archived locations are decoded again on each read, block by block when
+ * iterating, and are equal but not identical to the locations that were added; their
+ * coordinates are rounded to a ten-millionth of a degree.
+ * </p>
+ * <p>
+ * Locations on the heap are also indexed by timestamp, whatever the order they were added
+ * in, so that {@link #between(long, long, int)} finds their part of a time window with two
+ * binary searches; the index takes 12 bytes per location. Archived blocks only carry their
+ * time range: a window skips the blocks outside of it, and binary-searches the decoded
+ * blocks whose locations are in time order.
+ * </p>
+ */
+public class LocationHistory extends AbstractList<VisitedLocation> {
+	public static final int BLOCK_SIZE = 256;
+	private final UUID userId;
+	private final List<VisitedLocation> hot = new ArrayList<>();
+	private LocationArchive archive;
+	private int hotLimit;
+	private static final Comparator<TimedLocation> TIME_ORDER =
+			Comparator.comparingLong(TimedLocation::time).thenComparingInt(TimedLocation::index);
+	private long[] hotTimes = new long[16];
+	private int[] hotIndexes = new int[16];
+
+	public LocationHistory(UUID userId) {
+		this.userId = userId;
+	}
+
+	/**
+	 * Moves the locations beyond the most recent {@code hotLimit} to the segments, now and as
+	 * locations are added.
+	 *
+	 * @param segments the store of the archived blocks
+	 * @param hotLimit the number of recent locations always kept on the heap
+	 */
+	public synchronized void enableArchive(HistorySegments segments, int hotLimit) {
+		if (archive == null) {
+			archive = new LocationArchive(segments);
+		}
+		this.hotLimit = hotLimit;
+		archiveColdLocations();
+	}
+
+	@Override
+	public synchronized boolean add(VisitedLocation visitedLocation) {
+		indexTime(visitedLocation.timeVisited.getTime(), size());
+		hot.add(visitedLocation);
+		if (archive != null) {
+			archiveColdLocations();
+		}
+		return true;
+	}
+
+	@Override
+	public synchronized VisitedLocation get(int index) {
+		Objects.checkIndex(index, size());
+		int archived = archivedCount();
+		if (index >= archived) {
+			return hot.get(index - archived);
+		}
+		int block = archive.blockOf(index);
+		return archive.decode(block, userId)[index - archive.blockStart(block)];
+	}
+
+	@Override
+	public synchronized int size() {
+		return archivedCount() + hot.size();
+	}
+
+	/**
+	 * Removes every location, releasing the archived blocks in the segments.
+	 */
+	@Override
+	public synchronized void clear() {
+		hot.clear();
+		hotTimes = new long[16];
+		hotIndexes = new int[16];
+		if (archive != null) {
+			archive.release();
+		}
+		modCount++;
+	}
+
+	/**
+	 * @return the most recent location
+	 * @throws IndexOutOfBoundsException if the history is empty
+	 */
+	public synchronized VisitedLocation last() {
+		return get(size() - 1);
+	}
+
+	/**
+	 * Finds a location that was added to the history. The locations on the heap are compared
+	 * by reference; archived ones, decoded into new objects, are then looked up in the blocks
+	 * whose time range holds the location's time and compared by their encoded coordinates,
+	 * so that a location archived as soon as it was added is still found.
+	 *
+	 * @param visitedLocation a location
+	 * @return its index, or -1 if it is not part of the history
+	 */
+	public synchronized int lastIndexOfInstance(VisitedLocation visitedLocation) {
+		for (int i = hot.size() - 1; i >= 0; i--) {
+			if (hot.get(i) == visitedLocation) {
+				return archivedCount() + i;
+			}
+		}
+		return lastIndexOfArchived(visitedLocation);
+	}
+
+	/**
+	 * Returns the locations visited within a time window. The locations on the heap are found
+	 * in O(log n + k); archived blocks are decoded only if their time range overlaps the window,
+	 * by ascending start time, until the blocks left start after the {@code limit} locations
+	 * found.
+	 *
+	 * @param fromMillis the start of the window, inclusive, in epoch milliseconds
+	 * @param toMillis the end of the window, inclusive, in epoch milliseconds
+	 * @param limit the maximum number of locations to return
+	 * @return the first {@code limit} locations of the window, by ascending time, locations
+	 *         visited at the same time being in the order they were added
+	 */
+	public synchronized List<VisitedLocation> between(long fromMillis, long toMillis, int limit) {
+		List<TimedLocation> window = new ArrayList<>();
+		int archived = archivedCount();
+		int to = firstHotIndexAfter(toMillis);
+		for (int i = firstHotIndexFrom(fromMillis); i < to && window.size() < limit; i++) {
+			window.add(new TimedLocation(hotTimes[i], hotIndexes[i], hot.get(hotIndexes[i] - archived)));
+		}
+		if (archive != null && limit > 0) {
+			for (int block : archive.blocksBetween(fromMillis, toMillis)) {
+				if (window.size() >= limit && archive.minTime(block) > window.get(limit - 1).time()) {
+					break;
+				}
+				addArchived(window, block, fromMillis, toMillis);
+				if (window.size() >= limit) {
+					keepFirst(window, limit);
+				}
+			}
+		}
+		keepFirst(window, limit);
+
+		List<VisitedLocation> locations = new ArrayList<>(window.size());
+		for (TimedLocation timedLocation : window) {
+			locations.add(timedLocation.location());
+		}
+		return locations;
+	}
+
+	/**
+	 * @return the number of locations moved to the segments
+	 */
+	public synchronized int getArchivedCount() {
+		return archivedCount();
+	}
+
+	/**
+	 * @return the size of the encoded archived locations
+	 */
+	public synchronized long getArchivedBytes() {
+		return archive == null ? 0 : archive.encodedBytes();
+	}
+
+	/**
+	 * Iterates over the history as of the call, decoding archived locations a block at a time.
+	 */
+	@Override
+	public Iterator<VisitedLocation> iterator() {
+		return new Iterator<>() {
+			private final int expectedModCount = modCount;
+			private final int end = size();
+			private int index;
+			private VisitedLocation[] block;
+			private int blockStart;
+
+			@Override
+			public boolean hasNext() {
+				return index < end;
+			}
+
+			@Override
+			public VisitedLocation next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				synchronized (LocationHistory.this) {
+					if (modCount != expectedModCount) {
+						throw new ConcurrentModificationException();
+					}
+					VisitedLocation next;
+					if (block != null && index - blockStart < block.length) {
+						next = block[index - blockStart];
+					} else if (index >= archivedCount()) {
+						next = hot.get(index - archivedCount());
+					} else {
+						int blockIndex = archive.blockOf(index);
+						block = archive.decode(blockIndex, userId);
+						blockStart = archive.blockStart(blockIndex);
+						next = block[index - blockStart];
+					}
+					index++;
+					return next;
+				}
+			}
+		};
+	}
+
+	/**
+	 * Inserts the timestamp of a location about to be added to the heap in the index, after
+	 * the equal ones. Appending in time order, the common case, costs O(1); an older timestamp
+	 * shifts the more recent ones.
+	 */
+	private void indexTime(long time, int index) {
+		int size = hot.size();
+		if (size == hotTimes.length) {
+			hotTimes = Arrays.copyOf(hotTimes, size * 2);
+			hotIndexes = Arrays.copyOf(hotIndexes, size * 2);
+		}
+		int position = size == 0 || hotTimes[size - 1] <= time ? size : firstHotIndexAfter(time);
+		System.arraycopy(hotTimes, position, hotTimes, position + 1, size - position);
+		System.arraycopy(hotIndexes, position, hotIndexes, position + 1, size - position);
+		hotTimes[position] = time;
+		hotIndexes[position] = index;
+	}
+
+	/**
+	 * Removes the archived locations from the time index, which held {@code indexed} of them.
+	 */
+	private void unindexArchived(int indexed) {
+		int archived = archivedCount();
+		int kept = 0;
+		for (int i = 0; i < indexed; i++) {
+			if (hotIndexes[i] >= archived) {
+				hotTimes[kept] = hotTimes[i];
+				hotIndexes[kept] = hotIndexes[i];
+				kept++;
+			}
+		}
+	}
+
+	/**
+	 * @return the position in the time index of the first timestamp greater than {@code time}
+	 */
+	private int firstHotIndexAfter(long time) {
+		int low = 0;
+		int high = hot.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (hotTimes[middle] <= time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private int firstHotIndexFrom(long time) {
+		return time == Long.MIN_VALUE ? 0 : firstHotIndexAfter(time - 1);
+	}
+
+	/**
+	 * Adds the locations of an archived block visited within the window.
+	 */
+	private void addArchived(List<TimedLocation> window, int block, long fromMillis, long toMillis) {
+		VisitedLocation[] locations = archive.decode(block, userId);
+		int blockStart = archive.blockStart(block);
+		boolean ordered = archive.isOrdered(block);
+		for (int i = ordered ? firstFrom(locations, fromMillis) : 0; i < locations.length; i++) {
+			long time = locations[i].timeVisited.getTime();
+			if (time > toMillis && ordered) {
+				break;
+			}
+			if (time >= fromMillis && time <= toMillis) {
+				window.add(new TimedLocation(time, blockStart + i, locations[i]));
+			}
+		}
+	}
+
+	/**
+	 * @return the position of the first location visited at or after {@code time} in a block
+	 *         in time order
+	 */
+	private static int firstFrom(VisitedLocation[] locations, long time) {
+		int low = 0;
+		int high = locations.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (locations[middle].timeVisited.getTime() < time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static void keepFirst(List<TimedLocation> window, int limit) {
+		window.sort(TIME_ORDER);
+		if (window.size() > limit) {
+			window.subList(Math.max(0, limit), window.size()).clear();
+		}
+	}
+
+	private int lastIndexOfArchived(VisitedLocation visitedLocation) {
+		if (archive == null) {
+			return -1;
+		}
+		long time = visitedLocation.timeVisited.getTime();
+		long latitude = LocationCodec.quantize(visitedLocation.location.latitude);
+		long longitude = LocationCodec.quantize(visitedLocation.location.longitude);
+		for (int block = archive.blocks() - 1; block >= 0; block--) {
+			if (archive.minTime(block) > time || archive.maxTime(block) < time) {
+				continue;
+			}
+			VisitedLocation[] locations = archive.decode(block, userId);
+			for (int i = locations.length - 1; i >= 0; i--) {
+				VisitedLocation candidate = locations[i];
+				if (candidate.timeVisited.getTime() == time
+						&& LocationCodec.quantize(candidate.location.latitude) == latitude
+						&& LocationCodec.quantize(candidate.location.longitude) == longitude) {
+					return archive.blockStart(block) + i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private int archivedCount() {
+		return archive == null ? 0 : archive.size();
+	}
+
+	private void archiveColdLocations() {
+		int indexed = hot.size();
+		while (hot.size() >= hotLimit + BLOCK_SIZE) {
+			List<VisitedLocation> cold = hot.subList(0, BLOCK_SIZE);
+			archive.append(cold);
+			cold.clear();
+		}
+		if (hot.size() < indexed) {
+			unindexArchived(indexed);
+		}
+	}
+
+	private record TimedLocation(long time, int index, VisitedLocation location) {
+	}
+}
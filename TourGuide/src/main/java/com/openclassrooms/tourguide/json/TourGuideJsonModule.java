@@ -0,0 +1,152 @@
+package com.openclassrooms.tourguide.json;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.dto.NearbyAttractionDto;
+import com.openclassrooms.tourguide.user.UserReward;
+
+/**
+ * Jackson module writing the high-volume response types with hand-written streaming
+ * serializers instead of reflective bean serialization.
+ * <p>
+ * The output has the same shape as the bean serialization it replaces: the same property
+ * names, coordinates at full precision and visit times written through the mapper's date
+ * settings, as an ISO-8601 string with Spring Boot's defaults. The serializers write
+ * straight to the generator, so they work for JSON as well as for binary formats such as
+ * CBOR.
+ * </p>
+ */
+public class TourGuideJsonModule extends SimpleModule {
+	public TourGuideJsonModule() {
+		super("TourGuideJsonModule");
+		addSerializer(Location.class, new LocationSerializer());
+		addSerializer(Attraction.class, new AttractionSerializer());
+		addSerializer(VisitedLocation.class, new VisitedLocationSerializer());
+		addSerializer(UserReward.class, new UserRewardSerializer());
+		addSerializer(NearbyAttractionDto.class, new NearbyAttractionSerializer());
+	}
+
+	static void writeCoordinates(Location location, JsonGenerator generator) throws IOException {
+		generator.writeNumberField("longitude", location.longitude);
+		generator.writeNumberField("latitude", location.latitude);
+	}
+
+	static void writeLocation(Location location, JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		writeCoordinates(location, generator);
+		generator.writeEndObject();
+	}
+
+	static void writeLocationOrAttraction(Location location, JsonGenerator generator) throws IOException {
+		if (location instanceof Attraction attraction) {
+			writeAttraction(attraction, generator);
+		} else {
+			writeLocation(location, generator);
+		}
+	}
+
+	static void writeAttraction(Attraction attraction, JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		writeCoordinates(attraction, generator);
+		generator.writeStringField("attractionName", attraction.attractionName);
+		generator.writeStringField("city", attraction.city);
+		generator.writeStringField("state", attraction.state);
+		generator.writeStringField("attractionId", attraction.attractionId.toString());
+		generator.writeEndObject();
+	}
+
+	static void writeVisitedLocation(VisitedLocation visitedLocation, JsonGenerator generator,
+			SerializerProvider provider) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("userId", visitedLocation.userId.toString());
+		generator.writeFieldName("location");
+		writeLocationOrAttraction(visitedLocation.location, generator);
+		generator.writeFieldName("timeVisited");
+		provider.defaultSerializeDateValue(visitedLocation.timeVisited, generator);
+		generator.writeEndObject();
+	}
+
+	static class LocationSerializer extends StdSerializer<Location> {
+		LocationSerializer() {
+			super(Location.class);
+		}
+
+		@Override
+		public void serialize(Location location, JsonGenerator generator, SerializerProvider provider) throws IOException {
+			writeLocationOrAttraction(location, generator);
+		}
+	}
+
+	static class AttractionSerializer extends StdSerializer<Attraction> {
+		AttractionSerializer() {
+			super(Attraction.class);
+		}
+
+		@Override
+		public void serialize(Attraction attraction, JsonGenerator generator, SerializerProvider provider) throws IOException {
+			writeAttraction(attraction, generator);
+		}
+	}
+
+	static class VisitedLocationSerializer extends StdSerializer<VisitedLocation> {
+		VisitedLocationSerializer() {
+			super(VisitedLocation.class);
+		}
+
+		@Override
+		public void serialize(VisitedLocation visitedLocation, JsonGenerator generator, SerializerProvider provider)
+				throws IOException {
+			writeVisitedLocation(visitedLocation, generator, provider);
+		}
+	}
+
+	static class UserRewardSerializer extends StdSerializer<UserReward> {
+		UserRewardSerializer() {
+			super(UserReward.class);
+		}
+
+		@Override
+		public void serialize(UserReward userReward, JsonGenerator generator, SerializerProvider provider)
+				throws IOException {
+			generator.writeStartObject();
+			generator.writeFieldName("visitedLocation");
+			if (userReward.visitedLocation == null) {
+				generator.writeNull();
+			} else {
+				writeVisitedLocation(userReward.visitedLocation, generator, provider);
+			}
+			generator.writeFieldName("attraction");
+			writeAttraction(userReward.attraction, generator);
+			generator.writeNumberField("rewardPoints", userReward.getRewardPoints());
+			generator.writeEndObject();
+		}
+	}
+
+	static class NearbyAttractionSerializer extends StdSerializer<NearbyAttractionDto> {
+		NearbyAttractionSerializer() {
+			super(NearbyAttractionDto.class);
+		}
+
+		@Override
+		public void serialize(NearbyAttractionDto dto, JsonGenerator generator, SerializerProvider provider)
+				throws IOException {
+			generator.writeStartObject();
+			generator.writeStringField("attractionName", dto.attractionName());
+			generator.writeFieldName("attractionLocation");
+			writeLocationOrAttraction(dto.attractionLocation(), generator);
+			generator.writeFieldName("userLocation");
+			writeLocationOrAttraction(dto.userLocation(), generator);
+			generator.writeNumberField("distance", dto.distance());
+			generator.writeNumberField("rewardPoints", dto.rewardPoints());
+			generator.writeEndObject();
+		}
+	}
+}
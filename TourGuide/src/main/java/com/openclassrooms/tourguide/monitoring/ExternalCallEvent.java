@@ -0,0 +1,35 @@
+package com.openclassrooms.tourguide.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning one call to GpsUtil, RewardCentral or TripPricer.
+ */
+@Name("com.openclassrooms.tourguide.ExternalCall")
+@Label("External Call")
+@Category({"TourGuide", "External Dependencies"})
+@Description("Call to an external dependency")
+public class ExternalCallEvent extends Event {
+
+	@Label("Dependency")
+	private final String dependency;
+
+	@Label("Operation")
+	private final String operation;
+
+	@Label("Failed")
+	private boolean failed;
+
+	public ExternalCallEvent(String dependency, String operation) {
+		this.dependency = dependency;
+		this.operation = operation;
+	}
+
+	public void setFailed(boolean failed) {
+		this.failed = failed;
+	}
+}
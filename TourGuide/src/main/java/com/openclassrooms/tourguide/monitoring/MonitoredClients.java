@@ -0,0 +1,49 @@
+package com.openclassrooms.tourguide.monitoring;
+
+import java.util.function.Supplier;
+
+import com.openclassrooms.tourguide.client.GpsUtilClient;
+import com.openclassrooms.tourguide.client.RewardCentralClient;
+import com.openclassrooms.tourguide.client.TripPricerClient;
+import com.openclassrooms.tourguide.tracing.Span;
+import com.openclassrooms.tourguide.tracing.Tracer;
+
+/**
+ * Decorates the clients of the external dependencies so that every call is recorded as an
+ * {@link ExternalCallEvent} and as a span of the current trace.
+ */
+public final class MonitoredClients {
+
+	private MonitoredClients() {
+	}
+
+	public static GpsUtilClient gpsUtil(GpsUtilClient client) {
+		return userId -> call("GpsUtil", "getUserLocation", () -> client.getUserLocation(userId));
+	}
+
+	public static RewardCentralClient rewardCentral(RewardCentralClient client) {
+		return (attractionId, userId) -> call("RewardCentral", "getAttractionRewardPoints",
+				() -> client.getAttractionRewardPoints(attractionId, userId));
+	}
+
+	public static TripPricerClient tripPricer(TripPricerClient client) {
+		return (apiKey, attendeeId, adults, children, nightsStay, rewardsPoints) -> call("TripPricer", "getPrice",
+				() -> client.getPrice(apiKey, attendeeId, adults, children, nightsStay, rewardsPoints));
+	}
+
+	private static <T> T call(String dependency, String operation, Supplier<T> call) {
+		ExternalCallEvent event = new ExternalCallEvent(dependency, operation);
+		event.begin();
+		try (Span span = Tracer.startSpan(dependency + "." + operation)) {
+			try {
+				return call.get();
+			} catch (RuntimeException e) {
+				event.setFailed(true);
+				span.setError();
+				throw e;
+			}
+		} finally {
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.openclassrooms.tourguide.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning one reward calculation of a user.
+ * <p>
+ * The mode tells a full scan of the history from an incremental evaluation of the last
+ * location, or from an evaluation skipped because the user's geo-cell was exhausted.
+ * </p>
+ */
+@Name("com.openclassrooms.tourguide.RewardCalculation")
+@Label("Reward Calculation")
+@Category({"TourGuide", "Rewards"})
+@Description("Evaluation of a user's locations against the nearby attractions")
+public class RewardCalculationEvent extends Event {
+	public static final String FULL = "full";
+	public static final String INCREMENTAL = "incremental";
+	public static final String SKIPPED = "skipped";
+
+	@Label("User Name")
+	private String userName;
+
+	@Label("Mode")
+	private String mode;
+
+	@Label("Locations Scanned")
+	private int locationsScanned;
+
+	@Label("Attractions Tested")
+	private int attractionsTested;
+
+	@Label("Rewards Granted")
+	private int rewardsGranted;
+
+	public RewardCalculationEvent(String userName, String mode) {
+		this.userName = userName;
+		this.mode = mode;
+	}
+
+	public void locationScanned() {
+		locationsScanned++;
+	}
+
+	public void attractionTested() {
+		attractionsTested++;
+	}
+
+	public void rewardGranted() {
+		rewardsGranted++;
+	}
+}
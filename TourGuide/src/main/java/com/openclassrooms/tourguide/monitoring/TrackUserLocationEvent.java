@@ -0,0 +1,42 @@
+package com.openclassrooms.tourguide.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event spanning the tracking of one user, with the time spent waiting
+ * for GpsUtil and for the reward calculation recorded separately.
+ */
+@Name("com.openclassrooms.tourguide.TrackUserLocation")
+@Label("Track User Location")
+@Category({"TourGuide", "Tracker"})
+@Description("Retrieval of a user's location and evaluation of the rewards it earns")
+public class TrackUserLocationEvent extends Event {
+
+	@Label("User Name")
+	private String userName;
+
+	@Label("GpsUtil Wait")
+	@Timespan(Timespan.NANOSECONDS)
+	private long gpsUtilWait;
+
+	@Label("Reward Wait")
+	@Timespan(Timespan.NANOSECONDS)
+	private long rewardWait;
+
+	public void setUserName(String userName) {
+		this.userName = userName;
+	}
+
+	public void setGpsUtilWait(long gpsUtilWait) {
+		this.gpsUtilWait = gpsUtilWait;
+	}
+
+	public void setRewardWait(long rewardWait) {
+		this.rewardWait = rewardWait;
+	}
+}
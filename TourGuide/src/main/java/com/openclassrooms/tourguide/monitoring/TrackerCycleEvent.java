@@ -0,0 +1,24 @@
+package com.openclassrooms.tourguide.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning one round of the {@link com.openclassrooms.tourguide.tracker.Tracker}.
+ */
+@Name("com.openclassrooms.tourguide.TrackerCycle")
+@Label("Tracker Cycle")
+@Category({"TourGuide", "Tracker"})
+@Description("Tracking of the location of every user")
+public class TrackerCycleEvent extends Event {
+
+	@Label("Users")
+	private int users;
+
+	public void setUsers(int users) {
+		this.users = users;
+	}
+}
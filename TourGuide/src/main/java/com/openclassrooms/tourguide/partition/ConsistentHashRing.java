@@ -0,0 +1,48 @@
+package com.openclassrooms.tourguide.partition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Consistent hash ring assigning partitions to nodes.
+ * <p>
+ * Each node is placed on the ring at {@value #VIRTUAL_NODES} pseudo-random points, and a
+ * partition belongs to the first node point following its own. When a node joins, it only
+ * takes partitions from the others, and when it leaves, only its partitions move. Points are
+ * derived from MD5 digests of the names, so every node computes the same assignment.
+ * </p>
+ */
+public class ConsistentHashRing {
+	static final int VIRTUAL_NODES = 64;
+	private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+	/**
+	 * @param nodeIds the ids of the live nodes, at least one
+	 */
+	public ConsistentHashRing(Collection<String> nodeIds) {
+		if (nodeIds.isEmpty()) {
+			throw new IllegalArgumentException("A hash ring needs at least one node");
+		}
+		for (String nodeId : nodeIds) {
+			for (int i = 0; i < VIRTUAL_NODES; i++) {
+				ring.put(hash(nodeId + "#" + i), nodeId);
+			}
+		}
+	}
+
+	/**
+	 * @param partition a partition
+	 * @return the id of the node the partition is assigned to
+	 */
+	public String ownerOf(int partition) {
+		Long point = ring.ceilingKey(hash("partition-" + partition));
+		return ring.get(point != null ? point : ring.firstKey());
+	}
+
+	private static long hash(String name) {
+		return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).getMostSignificantBits();
+	}
+}
@@ -0,0 +1,209 @@
+package com.openclassrooms.tourguide.partition;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Assigns partitions to the nodes sharing a directory, through a lease table file.
+ * <p>
+ * Every renewal round, under an exclusive lock of the file, the node:
+ * <ul>
+ *   <li>extends its own membership lease and forgets the nodes whose lease expired,</li>
+ *   <li>computes the wanted assignment with a {@link ConsistentHashRing} of the live nodes,</li>
+ *   <li>renews the leases of its partitions still assigned to it and releases the others,</li>
+ *   <li>claims the partitions assigned to it that are free, or whose lease expired.</li>
+ * </ul>
+ * A partition is only claimed once its previous owner released it or stopped renewing it, so
+ * two nodes never own the same partition. When nodes join or leave, partitions move over the
+ * next rounds. Rounds run every third of the lease duration; if they fail for a whole lease
+ * duration, the node owns nothing until it renews again.
+ * </p>
+ */
+public class FileLeaseCoordinator implements PartitionCoordinator {
+	static final String LEASE_FILE = "partition-leases.properties";
+	private static final String NODE_PREFIX = "node.";
+	private static final String PARTITION_PREFIX = "partition.";
+	/** Serializes rounds of the coordinators of one JVM, as a file can only be locked once per JVM. */
+	private static final Object JVM_LOCK = new Object();
+	private final Logger logger = LoggerFactory.getLogger(FileLeaseCoordinator.class);
+	private final Path leaseFile;
+	private final String nodeId;
+	private final int partitions;
+	private final long leaseMillis;
+	private final ScheduledExecutorService renewer;
+	private volatile BitSet owned = new BitSet();
+	private volatile long validUntil;
+
+	/**
+	 * Joins the nodes sharing the directory, runs a first renewal round and schedules the
+	 * next ones.
+	 *
+	 * @param directory the directory shared by the nodes
+	 * @param nodeId the unique id of the local node
+	 * @param partitions the number of partitions, identical on every node
+	 * @param lease the duration a node owns its partitions without renewing them
+	 */
+	public FileLeaseCoordinator(Path directory, String nodeId, int partitions, Duration lease) throws IOException {
+		Files.createDirectories(directory);
+		this.leaseFile = directory.resolve(LEASE_FILE);
+		this.nodeId = nodeId;
+		this.partitions = partitions;
+		this.leaseMillis = lease.toMillis();
+		renew();
+		this.renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "partition-lease-renewer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		renewer.scheduleWithFixedDelay(this::tryRenew, leaseMillis / 3, leaseMillis / 3, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public boolean owns(UUID userId) {
+		return System.currentTimeMillis() < validUntil && owned.get(PartitionCoordinator.partitionOf(userId, partitions));
+	}
+
+	/**
+	 * @return the partitions currently owned by the local node
+	 */
+	public Set<Integer> getOwnedPartitions() {
+		Set<Integer> partitionSet = new TreeSet<>();
+		if (System.currentTimeMillis() < validUntil) {
+			owned.stream().forEach(partitionSet::add);
+		}
+		return partitionSet;
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * Runs a renewal round now.
+	 */
+	public void renew() throws IOException {
+		update(false);
+	}
+
+	@Override
+	public void close() {
+		if (renewer != null) {
+			renewer.shutdownNow();
+		}
+		try {
+			update(true);
+		} catch (IOException e) {
+			logger.warn("Could not release the partitions of node {}: {}", nodeId, e.getMessage());
+		}
+	}
+
+	private void tryRenew() {
+		try {
+			renew();
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Could not renew the partition leases of node {}: {}", nodeId, e.getMessage());
+		}
+	}
+
+	private void update(boolean leaving) throws IOException {
+		synchronized (JVM_LOCK) {
+			try (FileChannel channel = FileChannel.open(leaseFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+					FileLock lock = channel.lock()) {
+				long now = System.currentTimeMillis();
+				long expiry = now + leaseMillis;
+				Properties table = read(channel);
+				BitSet nowOwned = leaving ? release(table) : assign(table, now, expiry);
+				write(channel, table);
+				owned = nowOwned;
+				validUntil = leaving ? 0 : expiry;
+			}
+		}
+	}
+
+	private BitSet assign(Properties table, long now, long expiry) {
+		table.setProperty(NODE_PREFIX + nodeId, Long.toString(expiry));
+		Set<String> liveNodes = new TreeSet<>();
+		for (String key : table.stringPropertyNames()) {
+			if (key.startsWith(NODE_PREFIX)) {
+				if (Long.parseLong(table.getProperty(key)) > now) {
+					liveNodes.add(key.substring(NODE_PREFIX.length()));
+				} else {
+					table.remove(key);
+				}
+			}
+		}
+
+		ConsistentHashRing ring = new ConsistentHashRing(liveNodes);
+		BitSet nowOwned = new BitSet(partitions);
+		for (int partition = 0; partition < partitions; partition++) {
+			String key = PARTITION_PREFIX + partition;
+			String lease = table.getProperty(key);
+			String owner = lease == null ? null : lease.substring(0, lease.lastIndexOf(':'));
+			boolean expired = lease == null || Long.parseLong(lease.substring(lease.lastIndexOf(':') + 1)) <= now;
+			boolean assigned = ring.ownerOf(partition).equals(nodeId);
+
+			if (assigned && (nodeId.equals(owner) || expired)) {
+				table.setProperty(key, nodeId + ":" + expiry);
+				nowOwned.set(partition);
+			} else if (nodeId.equals(owner) || expired) {
+				table.remove(key);
+			}
+		}
+		return nowOwned;
+	}
+
+	private BitSet release(Properties table) {
+		table.remove(NODE_PREFIX + nodeId);
+		for (int partition = 0; partition < partitions; partition++) {
+			String lease = table.getProperty(PARTITION_PREFIX + partition);
+			if (lease != null && lease.substring(0, lease.lastIndexOf(':')).equals(nodeId)) {
+				table.remove(PARTITION_PREFIX + partition);
+			}
+		}
+		return new BitSet();
+	}
+
+	private static Properties read(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, buffer.position()) < 0) {
+				break;
+			}
+		}
+		Properties table = new Properties();
+		table.load(new StringReader(new String(buffer.array(), StandardCharsets.UTF_8)));
+		return table;
+	}
+
+	private static void write(FileChannel channel, Properties table) throws IOException {
+		StringWriter writer = new StringWriter();
+		table.store(writer, "TourGuide partition leases");
+		ByteBuffer buffer = ByteBuffer.wrap(writer.toString().getBytes(StandardCharsets.UTF_8));
+		channel.truncate(0);
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, buffer.position());
+		}
+		channel.force(false);
+	}
+}
@@ -0,0 +1,46 @@
+package com.openclassrooms.tourguide.partition;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.openclassrooms.tourguide.service.TourGuideService;
+
+/**
+ * Partitioned tracking, enabled by {@code tourguide.partitioning.enabled=true}: the nodes
+ * sharing the directory {@code tourguide.partitioning.directory} split the
+ * {@code tourguide.partitioning.partitions} partitions of the user population with a
+ * {@link FileLeaseCoordinator}, and each node's Tracker only tracks and rewards its own.
+ * Every node must use the same number of partitions and a distinct
+ * {@code tourguide.partitioning.node-id}, random by default.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tourguide.partitioning.enabled", havingValue = "true")
+public class PartitionConfiguration {
+
+	@Value("${tourguide.partitioning.directory:partitions}")
+	private Path directory;
+
+	@Value("${tourguide.partitioning.node-id:}")
+	private String nodeId;
+
+	@Value("${tourguide.partitioning.partitions:256}")
+	private int partitions;
+
+	@Value("${tourguide.partitioning.lease:30s}")
+	private Duration lease;
+
+	@Bean
+	public FileLeaseCoordinator getPartitionCoordinator(TourGuideService tourGuideService) throws IOException {
+		FileLeaseCoordinator coordinator = new FileLeaseCoordinator(directory,
+				nodeId.isEmpty() ? UUID.randomUUID().toString() : nodeId, partitions, lease);
+		tourGuideService.setPartitionCoordinator(coordinator);
+		return coordinator;
+	}
+}
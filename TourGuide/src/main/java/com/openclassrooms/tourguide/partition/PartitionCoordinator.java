@@ -0,0 +1,43 @@
+package com.openclassrooms.tourguide.partition;
+
+import java.util.UUID;
+
+/**
+ * Tells which users the local node tracks and rewards when several TourGuide nodes share
+ * one user population.
+ * <p>
+ * Users are spread over a fixed number of partitions by {@link #partitionOf(UUID, int)}, and
+ * partitions are assigned to nodes. A user belongs to exactly one partition whatever the
+ * nodes, so that moving a partition between nodes never splits its users.
+ * </p>
+ */
+public interface PartitionCoordinator extends AutoCloseable {
+
+	/**
+	 * Coordinator of a single node owning every user.
+	 */
+	PartitionCoordinator ALL = userId -> true;
+
+	/**
+	 * @param userId the id of a user
+	 * @return true if the local node currently owns the user's partition
+	 */
+	boolean owns(UUID userId);
+
+	/**
+	 * Releases the partitions owned by the local node, for other nodes to take them over.
+	 */
+	@Override
+	default void close() {
+	}
+
+	/**
+	 * @param userId the id of a user
+	 * @param partitions the number of partitions
+	 * @return the partition of the user, between 0 and {@code partitions - 1}
+	 */
+	static int partitionOf(UUID userId, int partitions) {
+		long bits = userId.getMostSignificantBits() ^ userId.getLeastSignificantBits();
+		return Math.floorMod(bits ^ (bits >>> 32), partitions);
+	}
+}
@@ -0,0 +1,101 @@
+package com.openclassrooms.tourguide.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.openclassrooms.tourguide.dto.AttractionTrafficDto;
+import com.openclassrooms.tourguide.dto.HeatmapCellDto;
+import com.openclassrooms.tourguide.geo.AttractionIndex;
+import com.openclassrooms.tourguide.user.User;
+import gpsUtil.location.Location;
+
+/**
+ * Live aggregate counters of attraction traffic and user positions.
+ * <p>
+ * Counters are striped {@link LongAdder}s updated on the tracking and reward paths, so
+ * concurrent tracking threads do not contend on a single counter, and read without
+ * scanning the users:
+ * <ul>
+ *     <li>per attraction: tracked locations within the proximity buffer, rewards granted and points granted,</li>
+ *     <li>per coarse geo-cell: tracked user positions.</li>
+ * </ul>
+ * </p>
+ */
+public class AttractionTraffic implements RewardListener {
+
+	/**
+	 * Side of a heatmap cell, in degrees.
+	 */
+	private static final int HEATMAP_CELL_SIZE_DEGREES = 5;
+	private static final int HEATMAP_ROWS = 180 / HEATMAP_CELL_SIZE_DEGREES;
+	private static final int HEATMAP_COLUMNS = 360 / HEATMAP_CELL_SIZE_DEGREES;
+
+	private final AttractionIndex attractionIndex = AttractionsService.attractionIndex;
+	private final LongAdder[] visits = newAdders(attractionIndex.size());
+	private final LongAdder[] rewardsGranted = newAdders(attractionIndex.size());
+	private final LongAdder[] rewardPointsGranted = newAdders(attractionIndex.size());
+	private final LongAdder[] positions = newAdders(HEATMAP_ROWS * HEATMAP_COLUMNS);
+
+	@Override
+	public void onRewardGranted(User user, int attractionOrdinal, int rewardPoints) {
+		rewardsGranted[attractionOrdinal].increment();
+		rewardPointsGranted[attractionOrdinal].add(rewardPoints);
+	}
+
+	/**
+	 * Counts a tracked location lying within the proximity buffer of an attraction.
+	 *
+	 * @param attractionOrdinal the ordinal of the attraction in {@link AttractionsService#attractionIndex}
+	 */
+	public void recordVisit(int attractionOrdinal) {
+		visits[attractionOrdinal].increment();
+	}
+
+	/**
+	 * Counts a tracked user position in its heatmap cell.
+	 *
+	 * @param location the tracked position
+	 */
+	public void recordPosition(Location location) {
+		int row = Math.min(HEATMAP_ROWS - 1, Math.max(0, (int) Math.floor((location.latitude + 90) / HEATMAP_CELL_SIZE_DEGREES)));
+		int column = Math.floorMod((int) Math.floor((location.longitude + 180) / HEATMAP_CELL_SIZE_DEGREES), HEATMAP_COLUMNS);
+		positions[row * HEATMAP_COLUMNS + column].increment();
+	}
+
+	/**
+	 * @return the counters of every attraction of the catalog
+	 */
+	public List<AttractionTrafficDto> getAttractionTraffic() {
+		List<AttractionTrafficDto> traffic = new ArrayList<>(attractionIndex.size());
+		for (int ordinal = 0; ordinal < attractionIndex.size(); ordinal++) {
+			traffic.add(new AttractionTrafficDto(attractionIndex.get(ordinal).attractionName,
+					visits[ordinal].sum(), rewardsGranted[ordinal].sum(), rewardPointsGranted[ordinal].sum()));
+		}
+		return traffic;
+	}
+
+	/**
+	 * @return the heatmap cells in which at least one position was tracked, located by their center
+	 */
+	public List<HeatmapCellDto> getHeatmap() {
+		List<HeatmapCellDto> heatmap = new ArrayList<>();
+		for (int cell = 0; cell < positions.length; cell++) {
+			long count = positions[cell].sum();
+			if (count > 0) {
+				double latitude = -90 + (cell / HEATMAP_COLUMNS + 0.5) * HEATMAP_CELL_SIZE_DEGREES;
+				double longitude = -180 + (cell % HEATMAP_COLUMNS + 0.5) * HEATMAP_CELL_SIZE_DEGREES;
+				heatmap.add(new HeatmapCellDto(latitude, longitude, count));
+			}
+		}
+		return heatmap;
+	}
+
+	private static LongAdder[] newAdders(int size) {
+		LongAdder[] adders = new LongAdder[size];
+		for (int i = 0; i < size; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+}
@@ -1,5 +1,6 @@
 package com.openclassrooms.tourguide.service;
 
+import com.openclassrooms.tourguide.geo.AttractionIndex;
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
 
@@ -13,4 +14,10 @@ public class AttractionsService extends GpsUtil {
      * This list wraps the result of a single call to {@link GpsUtil#getAttractions()}
      */
     public final static List<Attraction> allAttractions = List.copyOf(gpsUtil.getAttractions());
+
+    /**
+     * Spatial index over {@link #allAttractions}. Ordinals used by the index are the
+     * positions of the attractions in that list.
+     */
+    public final static AttractionIndex attractionIndex = new AttractionIndex(allAttractions);
 }
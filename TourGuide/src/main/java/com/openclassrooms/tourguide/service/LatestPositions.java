@@ -0,0 +1,222 @@
+package com.openclassrooms.tourguide.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.openclassrooms.tourguide.dto.NearbyUserDto;
+import com.openclassrooms.tourguide.geo.GeoGrid;
+import com.openclassrooms.tourguide.user.User;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Latest known position of every tracked user, indexed by {@link GeoGrid} cell, to find
+ * the users near a point without scanning the population.
+ * <p>
+ * Each user is given a slot in primitive columns holding their latitude, longitude, time
+ * and cell. Every non-empty cell lists the slots of the users it holds, and a user moving
+ * to another cell is removed from the old list in constant time. A query only visits the
+ * cells around the point; updates and queries are guarded by a read/write lock, an update
+ * holding it for a few array writes.
+ * </p>
+ */
+public class LatestPositions {
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<UUID, Integer> slots = new HashMap<>();
+	private final Map<Integer, CellSlots> cellSlots = new HashMap<>();
+	private User[] users = new User[1024];
+	private double[] latitudes = new double[1024];
+	private double[] longitudes = new double[1024];
+	private long[] times = new long[1024];
+	private int[] cells = new int[1024];
+	/** Position of each slot in the list of its cell. */
+	private int[] cellPositions = new int[1024];
+	private int size;
+
+	/**
+	 * Records a position of the user, unless a more recent one is already known.
+	 *
+	 * @param user the user
+	 * @param visitedLocation the position
+	 */
+	public void record(User user, VisitedLocation visitedLocation) {
+		double latitude = visitedLocation.location.latitude;
+		double longitude = visitedLocation.location.longitude;
+		long time = visitedLocation.timeVisited.getTime();
+		int cell = GeoGrid.cellOf(latitude, longitude);
+
+		lock.writeLock().lock();
+		try {
+			int slot = slotOf(user);
+			if (time < times[slot]) {
+				return;
+			}
+			latitudes[slot] = latitude;
+			longitudes[slot] = longitude;
+			times[slot] = time;
+			if (cells[slot] != cell) {
+				if (cells[slot] >= 0) {
+					removeFromCell(slot);
+				}
+				cells[slot] = cell;
+				cellPositions[slot] = cellSlots.computeIfAbsent(cell, key -> new CellSlots()).add(slot);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the number of users with a known position
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds the users whose latest position is within a radius of a point.
+	 *
+	 * @param latitude the latitude of the point
+	 * @param longitude the longitude of the point
+	 * @param radiusMiles the radius in miles
+	 * @param limit the maximum number of users to return
+	 * @return the nearest users within the radius, nearest first
+	 */
+	public List<NearbyUserDto> within(double latitude, double longitude, double radiusMiles, int limit) {
+		GeoGrid.CellRange range = GeoGrid.cellsAround(latitude, longitude, radiusMiles);
+		lock.readLock().lock();
+		try {
+			Matches matches = new Matches();
+			if (range.cellCount() < cellSlots.size()) {
+				for (int row = range.fromRow(); row <= range.toRow(); row++) {
+					for (int column = 0; column < range.columnCount(); column++) {
+						CellSlots cell = cellSlots.get(GeoGrid.key(row, (range.fromColumn() + column) % GeoGrid.COLUMNS));
+						if (cell != null) {
+							collect(cell, latitude, longitude, radiusMiles, matches);
+						}
+					}
+				}
+			} else {
+				for (Map.Entry<Integer, CellSlots> entry : cellSlots.entrySet()) {
+					if (range.contains(entry.getKey())) {
+						collect(entry.getValue(), latitude, longitude, radiusMiles, matches);
+					}
+				}
+			}
+			Arrays.sort(matches.packed, 0, matches.count);
+			int count = matches.count;
+
+			List<NearbyUserDto> nearbyUsers = new ArrayList<>(Math.min(count, limit));
+			for (int i = 0; i < count && i < limit; i++) {
+				int slot = (int) matches.packed[i];
+				User user = users[slot];
+				nearbyUsers.add(new NearbyUserDto(user.getUserName(), user.getUserId(),
+						new Location(latitudes[slot], longitudes[slot]),
+						GeoGrid.distance(latitude, longitude, latitudes[slot], longitudes[slot]), times[slot]));
+			}
+			return nearbyUsers;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void collect(CellSlots cell, double latitude, double longitude, double radiusMiles, Matches matches) {
+		for (int i = 0; i < cell.count; i++) {
+			int slot = cell.slots[i];
+			double distance = GeoGrid.distance(latitude, longitude, latitudes[slot], longitudes[slot]);
+			if (distance <= radiusMiles) {
+				matches.add(distance, slot);
+			}
+		}
+	}
+
+	private int slotOf(User user) {
+		Integer slot = slots.get(user.getUserId());
+		if (slot != null) {
+			return slot;
+		}
+		if (size == users.length) {
+			int capacity = size * 2;
+			users = Arrays.copyOf(users, capacity);
+			latitudes = Arrays.copyOf(latitudes, capacity);
+			longitudes = Arrays.copyOf(longitudes, capacity);
+			times = Arrays.copyOf(times, capacity);
+			cells = Arrays.copyOf(cells, capacity);
+			cellPositions = Arrays.copyOf(cellPositions, capacity);
+		}
+		int newSlot = size++;
+		users[newSlot] = user;
+		times[newSlot] = Long.MIN_VALUE;
+		cells[newSlot] = -1;
+		slots.put(user.getUserId(), newSlot);
+		return newSlot;
+	}
+
+	private void removeFromCell(int slot) {
+		CellSlots cell = cellSlots.get(cells[slot]);
+		int moved = cell.removeAt(cellPositions[slot]);
+		if (moved >= 0) {
+			cellPositions[moved] = cellPositions[slot];
+		}
+		if (cell.count == 0) {
+			cellSlots.remove(cells[slot]);
+		}
+	}
+
+	/**
+	 * Slots within the radius, each packed in a long with its distance so that sorting the
+	 * longs sorts the slots by distance.
+	 */
+	private static final class Matches {
+		private long[] packed = new long[16];
+		private int count;
+
+		void add(double distance, int slot) {
+			if (count == packed.length) {
+				packed = Arrays.copyOf(packed, count * 2);
+			}
+			packed[count++] = ((long) Float.floatToIntBits((float) distance) << 32) | slot;
+		}
+	}
+
+	/**
+	 * Unordered slots of the users of one cell.
+	 */
+	private static final class CellSlots {
+		private int[] slots = new int[4];
+		private int count;
+
+		int add(int slot) {
+			if (count == slots.length) {
+				slots = Arrays.copyOf(slots, count * 2);
+			}
+			slots[count] = slot;
+			return count++;
+		}
+
+		/**
+		 * Removes the slot at a position, moving the last slot into it.
+		 *
+		 * @return the moved slot, or -1 if the removed slot was the last one
+		 */
+		int removeAt(int position) {
+			count--;
+			if (position == count) {
+				return -1;
+			}
+			slots[position] = slots[count];
+			return slots[position];
+		}
+	}
+}
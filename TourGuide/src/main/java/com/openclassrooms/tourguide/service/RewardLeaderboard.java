@@ -0,0 +1,84 @@
+package com.openclassrooms.tourguide.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import com.openclassrooms.tourguide.dto.LeaderboardEntryDto;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Population-wide ranking of users by cumulative reward points.
+ * <p>
+ * The ranking is kept in a concurrent skip list ordered by descending points, updated
+ * incrementally each time a reward is granted, so that the top K users are read in
+ * O(K + log N) without scanning every user, even while the tracker is running.
+ * </p>
+ */
+public class RewardLeaderboard implements RewardListener {
+
+	private static final Comparator<Entry> RANKING = Comparator.comparingInt(Entry::rewardPoints).reversed()
+			.thenComparing(Entry::userId);
+
+	private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(RANKING);
+	private final Map<UUID, Entry> entriesByUser = new ConcurrentHashMap<>();
+
+	@Override
+	public void onRewardGranted(User user, int attractionOrdinal, int rewardPoints) {
+		update(user);
+	}
+
+	/**
+	 * Moves the user to the rank matching his current cumulative reward points.
+	 * Updates of a given user are expected to be serialized by the caller holding the
+	 * user's lock, as {@link RewardsService} and {@link TourGuideService#addUser(User)} do.
+	 *
+	 * @param user the user whose points changed
+	 */
+	public void update(User user) {
+		int rewardPoints = user.getCumulativeRewardPoints();
+		if (rewardPoints <= 0) {
+			return;
+		}
+		Entry entry = new Entry(user.getUserId(), user.getUserName(), rewardPoints);
+		Entry previous = entriesByUser.put(entry.userId(), entry);
+		if (previous != null) {
+			ranking.remove(previous);
+		}
+		ranking.add(entry);
+	}
+
+	/**
+	 * @param top the maximum number of users to return
+	 * @return the users with the highest cumulative reward points, best first
+	 */
+	public List<LeaderboardEntryDto> getTop(int top) {
+		List<LeaderboardEntryDto> leaders = new ArrayList<>(Math.min(top, 100));
+		// a user moving up while we iterate may be seen at both ranks
+		Set<UUID> seen = new HashSet<>();
+		Iterator<Entry> iterator = ranking.iterator();
+		while (leaders.size() < top && iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (!seen.add(entry.userId())) {
+				continue;
+			}
+			leaders.add(new LeaderboardEntryDto(leaders.size() + 1, entry.userName(), entry.rewardPoints()));
+		}
+		return leaders;
+	}
+
+	public int size() {
+		return entriesByUser.size();
+	}
+
+	private record Entry(UUID userId, String userName, int rewardPoints) {
+	}
+}
@@ -0,0 +1,21 @@
+package com.openclassrooms.tourguide.service;
+
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Callback notified by {@link RewardsService} each time a reward is granted to a user.
+ * <p>
+ * Listeners are invoked on the thread granting the reward, while it holds the user's lock:
+ * they must be fast and must not block.
+ * </p>
+ */
+@FunctionalInterface
+public interface RewardListener {
+
+	/**
+	 * @param user the rewarded user, whose rewards already include the new one
+	 * @param attractionOrdinal the ordinal of the rewarded attraction in {@link AttractionsService#attractionIndex}
+	 * @param rewardPoints the points granted
+	 */
+	void onRewardGranted(User user, int attractionOrdinal, int rewardPoints);
+}
@@ -0,0 +1,73 @@
+package com.openclassrooms.tourguide.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress handle of a bulk reward recalculation started by
+ * {@link RewardsService#recalculateRewards(java.util.List)}.
+ * <p>
+ * Counters are updated by the worker threads while the job runs and can be polled
+ * at any time; {@link #completion()} completes once every missing reward has been granted.
+ * </p>
+ */
+public class RewardRecalculation {
+	private final int totalUsers;
+	private final AtomicInteger processedUsers = new AtomicInteger();
+	private final AtomicInteger matchedRewards = new AtomicInteger();
+	private final AtomicInteger grantedRewards = new AtomicInteger();
+	private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+	RewardRecalculation(int totalUsers) {
+		this.totalUsers = totalUsers;
+	}
+
+	public int getTotalUsers() {
+		return totalUsers;
+	}
+
+	/**
+	 * @return the number of users whose locations have been joined against the attraction index
+	 */
+	public int getProcessedUsers() {
+		return processedUsers.get();
+	}
+
+	/**
+	 * @return the number of missing rewards found by the spatial join
+	 */
+	public int getMatchedRewards() {
+		return matchedRewards.get();
+	}
+
+	/**
+	 * @return the number of missing rewards already granted
+	 */
+	public int getGrantedRewards() {
+		return grantedRewards.get();
+	}
+
+	/**
+	 * @return the share of users already processed, between 0 and 1
+	 */
+	public double getProgress() {
+		return totalUsers == 0 ? 1 : (double) processedUsers.get() / totalUsers;
+	}
+
+	public boolean isDone() {
+		return completion.isDone();
+	}
+
+	public CompletableFuture<Void> completion() {
+		return completion;
+	}
+
+	void userProcessed(int matches) {
+		processedUsers.incrementAndGet();
+		matchedRewards.addAndGet(matches);
+	}
+
+	void rewardGranted() {
+		grantedRewards.incrementAndGet();
+	}
+}
@@ -1,50 +1,79 @@
 package com.openclassrooms.tourguide.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-
-import org.springframework.stereotype.Service;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 import gpsUtil.location.Attraction;
 import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.client.RewardCentralClient;
+import com.openclassrooms.tourguide.geo.AttractionIndex;
+import com.openclassrooms.tourguide.geo.GeoGrid;
+import com.openclassrooms.tourguide.geo.ProximityCells;
+import com.openclassrooms.tourguide.monitoring.MonitoredClients;
+import com.openclassrooms.tourguide.monitoring.RewardCalculationEvent;
+import com.openclassrooms.tourguide.tracing.Span;
+import com.openclassrooms.tourguide.tracing.Tracer;
+import com.openclassrooms.tourguide.user.RewardGeofence;
 import com.openclassrooms.tourguide.user.User;
-import com.openclassrooms.tourguide.user.UserReward;
+import com.openclassrooms.tourguide.user.UserPreferences;
 
 /**
  * Service responsible for calculating user rewards based on his visited locations
  * and proximity to attractions.
  */
-@Service
-public class RewardsService {
-    private final List<Attraction> allAttractions = AttractionsService.allAttractions;
+public class RewardsService implements AutoCloseable {
+    private final AttractionIndex attractionIndex = AttractionsService.attractionIndex;
 
     /**
-     * Conversion factor from nautical miles to statute miles.
+     * Number of users below which a bulk recalculation task stops splitting and
+     * processes its users sequentially.
      */
-    private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
+    private static final int RECALCULATION_BATCH_SIZE = 256;
 
     /**
      * Default distance in miles to consider a user as being near an attraction.
-     * This value is used to initialize the proximityBuffer and can be modified at runtime
+     * This value is used to initialize the proximity buffer, which can be modified at runtime
      * via {@link #setProximityBuffer(int)}.
      */
     private final int defaultProximityBuffer = 10;
 
     /**
-     * Current distance in miles used to determine if a user is near an attraction.
-     * <p>Initialized with {@link #defaultProximityBuffer} but
-     * can be updated via {@link #setProximityBuffer(int)}.</p>
+     * Distance in miles within which {@link #isWithinAttractionProximity(Attraction, Location)}
+     * considers a location close to an attraction.
+     */
+    private static final int ATTRACTION_PROXIMITY_RANGE = 200;
+
+    /**
+     * Candidate attractions of each geo-cell for the current proximity buffer, which applies to
+     * the users without an attraction proximity preference.
+     */
+    private volatile ProximityCells proximityCells = new ProximityCells(attractionIndex, defaultProximityBuffer);
+
+    /**
+     * Candidate attractions of each geo-cell for each attraction proximity preference of the
+     * users, shared by every user with the same preference. Preferences are validated by
+     * {@link UserPreferences#setAttractionProximity(int)}, which bounds the number of entries.
      */
-    private int proximityBuffer = defaultProximityBuffer;
+    private final Map<Integer, ProximityCells> proximityCellsByPreference = new ConcurrentHashMap<>();
 
-    private final RewardCentral rewardsCentral;
+    private final RewardCentralClient rewardsCentral;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(500);
+    private final ExecutorService executorService = Tracer.wrap(Executors.newFixedThreadPool(500));
+
+    private final List<RewardListener> rewardListeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructs a RewardsService with the specified RewardCentral instance.
@@ -52,7 +81,16 @@ public class RewardsService {
      * @param rewardCentral external service to fetch reward points for attractions.
      */
     public RewardsService(RewardCentral rewardCentral) {
-		this.rewardsCentral = rewardCentral;
+		this(RewardCentralClient.of(rewardCentral));
+	}
+
+    /**
+     * Constructs a RewardsService fetching reward points through the specified client.
+     *
+     * @param rewardCentralClient client of RewardCentral or of a local stand-in.
+     */
+    public RewardsService(RewardCentralClient rewardCentralClient) {
+		this.rewardsCentral = MonitoredClients.rewardCentral(rewardCentralClient);
 	}
 
     /**
@@ -61,9 +99,18 @@ public class RewardsService {
      * @param proximityBuffer The new proximity buffer in miles.
      */
 	public void setProximityBuffer(int proximityBuffer) {
-		this.proximityBuffer = proximityBuffer;
+		this.proximityCells = new ProximityCells(attractionIndex, proximityBuffer);
 	}
 
+    /**
+     * Registers a listener notified of every reward granted by this service.
+     *
+     * @param listener the listener to add
+     */
+    public void addRewardListener(RewardListener listener) {
+        rewardListeners.add(listener);
+    }
+
     /**
      * Asynchronously calculates rewards for a user based on his visited locations.
      * Adds new rewards if the user is near an attraction he hasn't visited before.
@@ -73,52 +120,319 @@ public class RewardsService {
      */
     public CompletableFuture<Void> calculateRewards(User user) {
         return CompletableFuture.runAsync(() -> {
-            synchronized (user) {
-                List<VisitedLocation> userLocations = new CopyOnWriteArrayList<>(user.getVisitedLocations());
+            RewardCalculationEvent event = new RewardCalculationEvent(user.getUserName(), RewardCalculationEvent.FULL);
+            event.begin();
+            try (Span span = Tracer.startSpan("RewardsService.calculateRewards")) {
+                rewardHistory(user, event);
+            } finally {
+                event.commit();
+            }
+        }, executorService);
+    }
 
-                for (VisitedLocation visitedLocation : userLocations) {
-                    for (Attraction attraction : allAttractions) {
-                        if (user.getUserRewards().stream().noneMatch(r -> r.attraction.attractionName.equals(attraction.attractionName))) {
-                            if (nearAttraction(visitedLocation, attraction)) {
-                                user.addUserReward(new UserReward(visitedLocation, attraction, getRewardPoints(attraction, user)));
-                            }
-                        }
+    private void rewardHistory(User user, RewardCalculationEvent event) {
+        synchronized (user) {
+            ProximityCells cells = proximityCellsOf(user);
+            List<VisitedLocation> userLocations = new ArrayList<>(user.getVisitedLocations());
+
+            for (int i = 0; i < userLocations.size(); i++) {
+                VisitedLocation visitedLocation = userLocations.get(i);
+                rewardLocation(user, visitedLocation, i, cells, cells.candidates(cellOf(visitedLocation)), event);
+            }
+
+            RewardGeofence geofence = user.getRewardGeofence();
+            geofence.setEvaluatedLocations(userLocations.size());
+            if (!userLocations.isEmpty()) {
+                int cell = cellOf(userLocations.get(userLocations.size() - 1));
+                geofence.update(cell, cells.getRadiusMiles(), isRewardedForAll(user, cells.candidates(cell)));
+            }
+        }
+    }
+
+    /**
+     * Asynchronously calculates rewards for a location that has just been added to the user's history.
+     * <p>
+     * Nothing is evaluated when the location falls into a geo-cell whose candidate attractions
+     * have all been rewarded already, which is the common case for stationary or slow-moving
+     * users. Otherwise, only the new location is tested, against the candidates of its cell.
+     * Falls back to {@link #calculateRewards(User)} when earlier locations of the history
+     * have never been evaluated.
+     * </p>
+     *
+     * @param user The user to calculate rewards for.
+     * @param visitedLocation The location just added to the user's history.
+     * @return A CompletableFuture that completes when the calculation is done.
+     */
+    public CompletableFuture<Void> calculateRewards(User user, VisitedLocation visitedLocation) {
+        ProximityCells cells = proximityCellsOf(user);
+        int cell = cellOf(visitedLocation);
+
+        synchronized (user) {
+            RewardGeofence geofence = user.getRewardGeofence();
+            int locationCount = user.getVisitedLocations().size();
+            if (geofence.getEvaluatedLocations() < locationCount - 1) {
+                return calculateRewards(user);
+            }
+            if (geofence.isExhausted(cell, cells.getRadiusMiles())
+                    || isRewardedForAll(user, cells.candidates(cell))) {
+                geofence.update(cell, cells.getRadiusMiles(), true);
+                geofence.setEvaluatedLocations(locationCount);
+                new RewardCalculationEvent(user.getUserName(), RewardCalculationEvent.SKIPPED).commit();
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+
+        return CompletableFuture.runAsync(() -> {
+            RewardCalculationEvent event = new RewardCalculationEvent(user.getUserName(), RewardCalculationEvent.INCREMENTAL);
+            event.begin();
+            try (Span span = Tracer.startSpan("RewardsService.calculateRewards")) {
+                rewardNewLocation(user, visitedLocation, cells, cell, event);
+            } finally {
+                event.commit();
+            }
+        }, executorService);
+    }
+
+    private void rewardNewLocation(User user, VisitedLocation visitedLocation, ProximityCells cells, int cell,
+                                   RewardCalculationEvent event) {
+        synchronized (user) {
+            int[] candidates = cells.candidates(cell);
+            rewardLocation(user, visitedLocation, user.indexOfVisitedLocation(visitedLocation), cells, candidates, event);
+
+            RewardGeofence geofence = user.getRewardGeofence();
+            geofence.update(cell, cells.getRadiusMiles(), isRewardedForAll(user, candidates));
+            geofence.setEvaluatedLocations(user.getVisitedLocations().size());
+        }
+    }
+
+    /**
+     * Rewards the user for every candidate attraction near the location he hasn't been rewarded for yet.
+     * Must be called while holding the user's lock.
+     */
+    private void rewardLocation(User user, VisitedLocation visitedLocation, int locationIndex, ProximityCells cells,
+                                int[] candidates, RewardCalculationEvent event) {
+        event.locationScanned();
+        for (int ordinal : candidates) {
+            if (user.hasUserReward(ordinal)) {
+                continue;
+            }
+            Attraction attraction = attractionIndex.get(ordinal);
+            event.attractionTested();
+            if (nearAttraction(visitedLocation, attraction, cells.getRadiusMiles())) {
+                grantReward(user, ordinal, locationIndex, getRewardPoints(attraction, user));
+                event.rewardGranted();
+            }
+        }
+    }
+
+    /**
+     * Records the reward and notifies the listeners. Must be called while holding the user's lock.
+     */
+    private void grantReward(User user, int attractionOrdinal, int locationIndex, int rewardPoints) {
+        user.addUserReward(attractionOrdinal, locationIndex, rewardPoints);
+        for (RewardListener listener : rewardListeners) {
+            listener.onRewardGranted(user, attractionOrdinal, rewardPoints);
+        }
+    }
+
+    private boolean isRewardedForAll(User user, int[] candidates) {
+        for (int ordinal : candidates) {
+            if (!user.hasUserReward(ordinal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the candidates of the user's attraction proximity preference, or of the proximity
+     *         buffer if the user has none
+     */
+    private ProximityCells proximityCellsOf(User user) {
+        int preference = user.getUserPreferences().getAttractionProximity();
+        if (preference == UserPreferences.NO_ATTRACTION_PROXIMITY) {
+            return proximityCells;
+        }
+        return proximityCellsByPreference.computeIfAbsent(preference, radius -> new ProximityCells(attractionIndex, radius));
+    }
+
+    private static int cellOf(VisitedLocation visitedLocation) {
+        return GeoGrid.cellOf(visitedLocation.location.latitude, visitedLocation.location.longitude);
+    }
+
+    /**
+     * Grants, in bulk, every reward the given users are missing under the current proximity buffer
+     * or their own attraction proximity preference.
+     * <p>
+     * The stored locations of all users are spatially joined against the attraction index
+     * by a fork/join task splitting the user list in partitions. Each missing reward is
+     * found in a single pass over the user's history, then its points are fetched
+     * asynchronously from RewardCentral.
+     * </p>
+     *
+     * @param users the users to re-evaluate
+     * @return a handle reporting the progress of the recalculation
+     */
+    public RewardRecalculation recalculateRewards(List<User> users) {
+        RewardRecalculation recalculation = new RewardRecalculation(users.size());
+        Queue<CompletableFuture<Void>> grants = new ConcurrentLinkedQueue<>();
+        SpatialJoinTask task = new SpatialJoinTask(users, 0, users.size(), recalculation, grants);
+
+        CompletableFuture.runAsync(Tracer.wrap((Runnable) task::invoke))
+                .thenCompose(v -> CompletableFuture.allOf(grants.toArray(CompletableFuture[]::new)))
+                .whenComplete((v, e) -> {
+                    if (e != null) {
+                        recalculation.completion().completeExceptionally(e);
+                    } else {
+                        recalculation.completion().complete(null);
                     }
+                });
+        return recalculation;
+    }
+
+    /**
+     * Fork/join task joining a partition of the users against the attraction index.
+     */
+    private class SpatialJoinTask extends RecursiveAction {
+        private final List<User> users;
+        private final int from;
+        private final int to;
+        private final RewardRecalculation recalculation;
+        private final Queue<CompletableFuture<Void>> grants;
+
+        SpatialJoinTask(List<User> users, int from, int to,
+                        RewardRecalculation recalculation, Queue<CompletableFuture<Void>> grants) {
+            this.users = users;
+            this.from = from;
+            this.to = to;
+            this.recalculation = recalculation;
+            this.grants = grants;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= RECALCULATION_BATCH_SIZE) {
+                for (int i = from; i < to; i++) {
+                    joinUser(users.get(i));
                 }
+                return;
             }
-        }, executorService);
+            int middle = (from + to) >>> 1;
+            invokeAll(new SpatialJoinTask(users, from, middle, recalculation, grants),
+                    new SpatialJoinTask(users, middle, to, recalculation, grants));
+        }
+
+        private void joinUser(User user) {
+            Map<Integer, VisitedLocation> missingRewards = new HashMap<>();
+            double radius = proximityCellsOf(user).getRadiusMiles();
+            synchronized (user) {
+                for (VisitedLocation visitedLocation : new ArrayList<>(user.getVisitedLocations())) {
+                    attractionIndex.forEachWithin(visitedLocation.location.latitude, visitedLocation.location.longitude,
+                            radius, ordinal -> {
+                                if (!user.hasUserReward(ordinal)) {
+                                    missingRewards.putIfAbsent(ordinal, visitedLocation);
+                                }
+                            });
+                }
+            }
+
+            missingRewards.forEach((ordinal, visitedLocation) -> {
+                Attraction attraction = attractionIndex.get(ordinal);
+                grants.add(CompletableFuture.supplyAsync(() -> getRewardPoints(attraction, user), executorService)
+                        .thenAccept(points -> {
+                            synchronized (user) {
+                                // the history may have been cleared while the points were fetched
+                                int locationIndex = user.indexOfVisitedLocation(visitedLocation);
+                                if (locationIndex >= 0 && !user.hasUserReward(ordinal)) {
+                                    grantReward(user, ordinal, locationIndex, points);
+                                    recalculation.rewardGranted();
+                                }
+                            }
+                        }));
+            });
+            recalculation.userProcessed(missingRewards.size());
+        }
     }
-	
+
+    /**
+     * Calls {@code action} with the ordinal of every attraction within the current proximity buffer of the location.
+     *
+     * @param location the location to search around
+     * @param action callback receiving the ordinal of each attraction in {@link AttractionsService#attractionIndex}
+     */
+    public void forEachNearbyAttraction(Location location, IntConsumer action) {
+        forEachAttractionWithin(proximityCells, location, action);
+    }
+
+    /**
+     * Stops the reward executor, abandoning the calculations not started yet.
+     */
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+    }
+
 	public boolean isWithinAttractionProximity(Attraction attraction, Location location) {
-        int attractionProximityRange = 200;
-        return getDistance(attraction, location) <= attractionProximityRange;
+        return getDistance(attraction, location) <= ATTRACTION_PROXIMITY_RANGE;
 	}
 
     /**
-     * Checks if a user's visited location is near an attraction, using the current proximity buffer.
+     * Calls {@code action} with the ordinal of every attraction within the user's proximity radius
+     * of the location: their attraction proximity preference, or the proximity buffer if they have
+     * none. Only the candidates of the location's geo-cell are measured, so the cost does not
+     * depend on the radius.
+     *
+     * @param user the user whose radius applies
+     * @param location the location to search around
+     * @param action callback receiving the ordinal of each attraction in {@link AttractionsService#attractionIndex}
+     */
+    public void forEachAttractionWithinRange(User user, Location location, IntConsumer action) {
+        forEachAttractionWithin(proximityCellsOf(user), location, action);
+    }
+
+    private void forEachAttractionWithin(ProximityCells cells, Location location, IntConsumer action) {
+        for (int ordinal : cells.candidates(GeoGrid.cellOf(location.latitude, location.longitude))) {
+            if (attractionIndex.distance(ordinal, location.latitude, location.longitude) <= cells.getRadiusMiles()) {
+                action.accept(ordinal);
+            }
+        }
+    }
+
+    /**
+     * Checks if a user's visited location is near an attraction.
      *
      * @param visitedLocation The user's visited location.
      * @param attraction The attraction to check proximity to.
+     * @param radiusMiles The proximity radius of the user.
      * @return true if the user is near the attraction, false otherwise.
      */
-	private boolean nearAttraction(VisitedLocation visitedLocation, Attraction attraction) {
-		return getDistance(attraction, visitedLocation.location) <= proximityBuffer;
+	private boolean nearAttraction(VisitedLocation visitedLocation, Attraction attraction, double radiusMiles) {
+		return getDistance(attraction, visitedLocation.location) <= radiusMiles;
 	}
 	
+    /**
+     * Fetches the reward points of several attractions concurrently on the reward executor.
+     *
+     * @param ordinals the ordinals of the attractions in {@link AttractionsService#attractionIndex}
+     * @param user the user the points are for
+     * @return a future of the points, in the order of {@code ordinals}
+     */
+    public CompletableFuture<int[]> getRewardPoints(int[] ordinals, User user) {
+        int[] points = new int[ordinals.length];
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            int position = i;
+            Attraction attraction = attractionIndex.get(ordinals[i]);
+            calls[i] = CompletableFuture.runAsync(() -> points[position] = getRewardPoints(attraction, user), executorService);
+        }
+        return CompletableFuture.allOf(calls).thenApply(done -> points);
+    }
+
 	protected int getRewardPoints(Attraction attraction, User user) {
 		return rewardsCentral.getAttractionRewardPoints(attraction.attractionId, user.getUserId());
 	}
 	
 	public double getDistance(Location loc1, Location loc2) {
-        double lat1 = Math.toRadians(loc1.latitude);
-        double lon1 = Math.toRadians(loc1.longitude);
-        double lat2 = Math.toRadians(loc2.latitude);
-        double lon2 = Math.toRadians(loc2.longitude);
-
-        double angle = Math.acos(Math.sin(lat1) * Math.sin(lat2)
-                               + Math.cos(lat1) * Math.cos(lat2) * Math.cos(lon1 - lon2));
-
-        double nauticalMiles = 60 * Math.toDegrees(angle);
-        return STATUTE_MILES_PER_NAUTICAL_MILE * nauticalMiles;
+        return GeoGrid.distance(loc1.latitude, loc1.longitude, loc2.latitude, loc2.longitude);
 	}
 }
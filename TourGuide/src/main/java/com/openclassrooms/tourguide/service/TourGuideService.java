@@ -1,19 +1,47 @@
 package com.openclassrooms.tourguide.service;
 
+import com.openclassrooms.tourguide.bulk.UserBulkFile;
+import com.openclassrooms.tourguide.client.DependencyUnavailableException;
+import com.openclassrooms.tourguide.client.GpsUtilClient;
+import com.openclassrooms.tourguide.client.TripPricerClient;
+import com.openclassrooms.tourguide.dto.AttractionTrafficDto;
+import com.openclassrooms.tourguide.dto.HeatmapCellDto;
+import com.openclassrooms.tourguide.dto.LeaderboardEntryDto;
 import com.openclassrooms.tourguide.dto.NearbyAttractionDto;
+import com.openclassrooms.tourguide.dto.NearbyUserDto;
+import com.openclassrooms.tourguide.geo.AttractionIndex;
+import com.openclassrooms.tourguide.geo.NearestAttractions;
 import com.openclassrooms.tourguide.helper.Constants;
+import com.openclassrooms.tourguide.history.HistorySegments;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.monitoring.MonitoredClients;
+import com.openclassrooms.tourguide.monitoring.TrackUserLocationEvent;
+import com.openclassrooms.tourguide.partition.PartitionCoordinator;
 import com.openclassrooms.tourguide.tracker.Tracker;
+import com.openclassrooms.tourguide.tracing.Span;
+import com.openclassrooms.tourguide.tracing.Tracer;
+import com.openclassrooms.tourguide.user.TripDealQuery;
+import com.openclassrooms.tourguide.user.NearbyAttractionsView;
 import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserPreferences;
 import com.openclassrooms.tourguide.user.UserReward;
 
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import gpsUtil.GpsUtil;
@@ -39,23 +67,72 @@ import tripPricer.TripPricer;
  * Supports a "test mode" where internal users are automatically created with
  * simulated locations and rewards.
  * </p>
+ * <p>
+ * The service owns the threads of its {@link Tracker} and {@link TripDealRefresher}, which
+ * {@link #close()} stops; Spring calls it when the context is closed.
+ * </p>
  */
 @Service
-public class TourGuideService {
+public class TourGuideService implements AutoCloseable {
 	private final Logger logger = LoggerFactory.getLogger(TourGuideService.class);
-	private final GpsUtil gpsUtil;
+	private final GpsUtilClient gpsUtil;
 	private final RewardsService rewardsService;
-	private final TripPricer tripPricer = new TripPricer();
+	private final TripPricerClient tripPricer;
+	private final RewardLeaderboard leaderboard = new RewardLeaderboard();
+	private final AttractionTraffic attractionTraffic = new AttractionTraffic();
+	private final TripDealRefresher tripDealRefresher;
+	private final LatestPositions latestPositions = new LatestPositions();
+	private final Map<User, CompletableFuture<NearbyAttractionsView>> nearbyAttractionsRefreshes = new ConcurrentHashMap<>();
+	private volatile PartitionCoordinator partitionCoordinator = PartitionCoordinator.ALL;
+	private HistorySegments historySegments;
+	private int hotLocations;
 	public final Tracker tracker;
+	private final Thread shutdownHook = new Thread(this::stop);
 	boolean testMode = true;
-	private final List<Attraction> allAttractions = AttractionsService.allAttractions;
+	private final AttractionIndex attractionIndex = AttractionsService.attractionIndex;
+	private final ThreadLocal<NearestAttractions> nearestAttractions =
+			ThreadLocal.withInitial(() -> new NearestAttractions(Constants.NB_OF_NEARBY_ATTRACTIONS));
 
 	public TourGuideService(GpsUtil gpsUtil, RewardsService rewardsService) {
-		this.gpsUtil = gpsUtil;
+		this(GpsUtilClient.of(gpsUtil), rewardsService, TripPricerClient.of(new TripPricer()));
+	}
+
+	/**
+	 * Creates the service on top of clients of the external dependencies, which may be
+	 * the real libraries or local stand-ins.
+	 *
+	 * @param gpsUtil source of users' locations
+	 * @param rewardsService service granting rewards
+	 * @param tripPricer source of trip deals
+	 */
+	@Autowired
+	public TourGuideService(GpsUtilClient gpsUtil, RewardsService rewardsService, TripPricerClient tripPricer) {
+		this(gpsUtil, rewardsService, tripPricer, true);
+	}
+
+	/**
+	 * Creates the service on top of clients of the external dependencies, with or without the
+	 * internal test users.
+	 *
+	 * @param gpsUtil source of users' locations
+	 * @param rewardsService service granting rewards
+	 * @param tripPricer source of trip deals
+	 * @param internalUsers whether the internal test users are created
+	 */
+	public TourGuideService(GpsUtilClient gpsUtil, RewardsService rewardsService, TripPricerClient tripPricer,
+			boolean internalUsers) {
+		this.gpsUtil = MonitoredClients.gpsUtil(gpsUtil);
 		this.rewardsService = rewardsService;
+		this.tripPricer = MonitoredClients.tripPricer(tripPricer);
+		rewardsService.addRewardListener(leaderboard);
+		rewardsService.addRewardListener(attractionTraffic);
+		tripDealRefresher = new TripDealRefresher(this::priceTripDeals, TripDealRefresher.DEFAULT_DEBOUNCE,
+				TripDealRefresher.DEFAULT_BATCH_SIZE);
+		rewardsService.addRewardListener(tripDealRefresher);
 		
 		Locale.setDefault(Locale.US);
 
+		testMode = internalUsers;
 		if (testMode) {
 			logger.info("TestMode enabled");
 			logger.debug("Initializing users");
@@ -73,7 +150,7 @@ public class TourGuideService {
 	 * @return a list of {@link UserReward} objects
 	 */
 	public List<UserReward> getUserRewards(User user) {
-		return user.getUserRewards();
+		return user.getUserRewards(attractionIndex);
 	}
 
 	public VisitedLocation getUserLocation(User user) {
@@ -81,6 +158,20 @@ public class TourGuideService {
                 : trackUserLocation(user);
 	}
 
+	/**
+	 * Returns the locations the user visited within a time window, oldest first, found by
+	 * binary search in the user's history.
+	 *
+	 * @param user the user
+	 * @param from the start of the window, inclusive
+	 * @param to the end of the window, inclusive
+	 * @param limit the maximum number of locations to return
+	 * @return the first {@code limit} locations of the window
+	 */
+	public List<VisitedLocation> getLocationHistory(User user, Instant from, Instant to, int limit) {
+		return user.getVisitedLocationsBetween(from.toEpochMilli(), to.toEpochMilli(), limit);
+	}
+
 	public User getUser(String userName) {
 		return internalUserMap.get(userName);
 	}
@@ -89,18 +180,174 @@ public class TourGuideService {
 		return new ArrayList<>(internalUserMap.values());
 	}
 
-	public void addUser(User user) {
-		if (!internalUserMap.containsKey(user.getUserName())) {
-			internalUserMap.put(user.getUserName(), user);
+	/**
+	 * Returns the users this node tracks and rewards: every user, unless partitions of the
+	 * user population are shared with other nodes by a {@link PartitionCoordinator}.
+	 *
+	 * @return the users of the partitions currently owned by this node
+	 */
+	public List<User> getTrackedUsers() {
+		PartitionCoordinator coordinator = partitionCoordinator;
+		return internalUserMap.values().stream().filter(user -> coordinator.owns(user.getUserId())).toList();
+	}
+
+	/**
+	 * Shares the tracking of the user population with other nodes.
+	 *
+	 * @param partitionCoordinator tells which users this node owns
+	 */
+	public void setPartitionCoordinator(PartitionCoordinator partitionCoordinator) {
+		this.partitionCoordinator = partitionCoordinator;
+	}
+
+	/**
+	 * Archives the older locations of every user's history, current and future users alike.
+	 *
+	 * @param historySegments the store of archived history blocks
+	 * @param hotLocations the number of recent locations of each user kept on the heap
+	 */
+	public synchronized void setHistoryArchive(HistorySegments historySegments, int hotLocations) {
+		this.historySegments = historySegments;
+		this.hotLocations = hotLocations;
+		internalUserMap.values().forEach(user -> user.enableHistoryArchive(historySegments, hotLocations));
+	}
+
+	/**
+	 * Registers a user, unless a user with the same name is already registered. Safe to call
+	 * concurrently with the readers of the users, as the bulk import does.
+	 *
+	 * @param user the user to register
+	 */
+	public synchronized void addUser(User user) {
+		if (internalUserMap.putIfAbsent(user.getUserName(), user) == null) {
+			if (historySegments != null) {
+				user.enableHistoryArchive(historySegments, hotLocations);
+			}
+			// the user is already visible to the tracker, whose reward passes update the
+			// leaderboard under the user's lock
+			synchronized (user) {
+				leaderboard.update(user);
+			}
+			if (!user.getVisitedLocations().isEmpty()) {
+				latestPositions.record(user, user.getLastVisitedLocation());
+			}
 		}
 	}
 
+	/**
+	 * Writes every user, with their history, rewards and preferences, to the channel in the
+	 * format of {@link UserBulkFile}. Meant for seeding and migration tooling: the stream holds
+	 * every user's contact details and history, so it is deliberately not exposed over HTTP.
+	 *
+	 * @param channel the channel to write to
+	 * @return the number of users written
+	 */
+	public long exportUsers(WritableByteChannel channel) throws IOException {
+		return UserBulkFile.write(channel, getAllUsers());
+	}
+
+	/**
+	 * Adds the users of a {@link UserBulkFile} stream, decoded on one thread per processor.
+	 * As with {@link #addUser(User)}, users whose name is already registered are ignored. The
+	 * import is not atomic: if the stream turns out to be malformed, the users read before the
+	 * error remain registered.
+	 *
+	 * @param channel the channel to read the users from
+	 * @return the number of users read
+	 */
+	public long importUsers(ReadableByteChannel channel) throws IOException {
+		return UserBulkFile.read(channel, Runtime.getRuntime().availableProcessors(), this::addUser);
+	}
+
+	/**
+	 * Returns the users with the highest cumulative reward points.
+	 *
+	 * @param top the maximum number of users to return
+	 * @return the leading users, best first
+	 */
+	public List<LeaderboardEntryDto> getLeaderboard(int top) {
+		return leaderboard.getTop(top);
+	}
+
+	/**
+	 * Returns, for every attraction, the number of tracked locations within its proximity
+	 * buffer and the rewards and points granted for it since startup.
+	 *
+	 * @return a list of {@link AttractionTrafficDto}, one per attraction
+	 */
+	public List<AttractionTrafficDto> getAttractionTraffic() {
+		return attractionTraffic.getAttractionTraffic();
+	}
+
+	/**
+	 * Returns the number of tracked user positions per coarse geo-cell since startup.
+	 *
+	 * @return a list of {@link HeatmapCellDto}, for non-empty cells only
+	 */
+	public List<HeatmapCellDto> getHeatmap() {
+		return attractionTraffic.getHeatmap();
+	}
+
+	/**
+	 * Changes the distance within which users are rewarded for an attraction and grants,
+	 * in a single bulk pass, the rewards every known user is now entitled to.
+	 *
+	 * @param proximityBuffer the new proximity buffer in miles
+	 * @return a handle reporting the progress of the bulk recalculation
+	 */
+	public RewardRecalculation setProximityBuffer(int proximityBuffer) {
+		rewardsService.setProximityBuffer(proximityBuffer);
+		RewardRecalculation recalculation = rewardsService.recalculateRewards(getTrackedUsers());
+		logger.debug("Recalculating rewards of {} users for a proximity buffer of {} miles.",
+				recalculation.getTotalUsers(), proximityBuffer);
+		recalculation.completion().thenRun(() -> logger.debug("Reward recalculation done: {} rewards granted to {} users.",
+				recalculation.getGrantedRewards(), recalculation.getProcessedUsers()));
+		return recalculation;
+	}
+
+	/**
+	 * Returns the trip deals of the user, priced by TripPricer for the user's current
+	 * preferences and reward points.
+	 * <p>
+	 * Deals are repriced in the background when the user's rewards or preferences change,
+	 * so they are usually already in {@link User#getTripDeals()}. They are priced on the
+	 * calling thread only when no deals match the user's current {@link TripDealQuery}.
+	 * </p>
+	 *
+	 * @param user the user looking for a trip
+	 * @return the deals of the partner providers
+	 */
 	public List<Provider> getTripDeals(User user) {
-		int cumulatativeRewardPoints = user.getUserRewards().stream().mapToInt(UserReward::getRewardPoints).sum();
+		if (TripDealQuery.of(user).equals(user.getTripDealsQuery())) {
+			return user.getTripDeals();
+		}
+		return priceTripDeals(user);
+	}
+
+	/**
+	 * Changes the preferences of the user and schedules the repricing of their trip deals. If
+	 * their attraction proximity changes, their whole history is evaluated again for rewards.
+	 *
+	 * @param user the user whose preferences change
+	 * @param userPreferences the new preferences
+	 */
+	public void setUserPreferences(User user, UserPreferences userPreferences) {
+		int previousProximity = user.getUserPreferences().getAttractionProximity();
+		user.setUserPreferences(userPreferences);
+		tripDealRefresher.schedule(user);
+		if (userPreferences.getAttractionProximity() != previousProximity) {
+			rewardsService.calculateRewards(user).exceptionally(e -> {
+				logger.warn("Could not reward {} for their new attraction proximity: {}", user.getUserName(), e.getMessage());
+				return null;
+			});
+		}
+	}
+
+	private List<Provider> priceTripDeals(User user) {
+		TripDealQuery query = TripDealQuery.of(user);
 		List<Provider> providers = tripPricer.getPrice(tripPricerApiKey, user.getUserId(),
-				user.getUserPreferences().getNumberOfAdults(), user.getUserPreferences().getNumberOfChildren(),
-				user.getUserPreferences().getTripDuration(), cumulatativeRewardPoints);
-		user.setTripDeals(providers);
+				query.numberOfAdults(), query.numberOfChildren(), query.tripDuration(), query.cumulativeRewardPoints());
+		user.setTripDeals(query, providers);
 		return providers;
 	}
 
@@ -111,23 +358,86 @@ public class TourGuideService {
 	 * @param user {@link User} to track location for
 	 */
 	public VisitedLocation trackUserLocation(User user) {
-		VisitedLocation visitedLocation = gpsUtil.getUserLocation(user.getUserId());
-		user.addToVisitedLocations(visitedLocation);
+		TrackUserLocationEvent event = new TrackUserLocationEvent();
+		event.begin();
+		try (Span span = Tracer.startSpan("TourGuideService.trackUserLocation")) {
+			long start = System.nanoTime();
+			VisitedLocation visitedLocation = gpsUtil.getUserLocation(user.getUserId());
+			event.setGpsUtilWait(System.nanoTime() - start);
+			recordUserLocation(user, visitedLocation);
 
-		rewardsService.calculateRewards(user).join();
+			long rewardStart = System.nanoTime();
+			rewardsService.calculateRewards(user, visitedLocation).join();
+			event.setRewardWait(System.nanoTime() - rewardStart);
 
-		return visitedLocation;
+			return visitedLocation;
+		} finally {
+			event.setUserName(user.getUserName());
+			event.commit();
+		}
+	}
+
+	/**
+	 * Adds a location, obtained from GpsUtil or from a recorded trace, to the user's visited
+	 * locations and to the attraction traffic counters. Rewards are not calculated.
+	 *
+	 * @param user the user who visited the location
+	 * @param visitedLocation the visited location
+	 */
+	public void recordUserLocation(User user, VisitedLocation visitedLocation) {
+		user.addToVisitedLocations(visitedLocation);
+		latestPositions.record(user, visitedLocation);
+		recordTraffic(visitedLocation);
+	}
+
+	/**
+	 * Finds the users whose latest known position is within a radius of an attraction,
+	 * using the cell index of {@link LatestPositions} rather than scanning the users.
+	 *
+	 * @param attractionName the name of the attraction
+	 * @param radiusMiles the radius in miles
+	 * @param limit the maximum number of users to return
+	 * @return the nearest users within the radius, nearest first, or null if the attraction is unknown
+	 */
+	public List<NearbyUserDto> getNearbyUsers(String attractionName, double radiusMiles, int limit) {
+		int ordinal = attractionIndex.ordinalOf(attractionName);
+		if (ordinal < 0) {
+			return null;
+		}
+		return latestPositions.within(attractionIndex.latitude(ordinal), attractionIndex.longitude(ordinal),
+				radiusMiles, limit);
 	}
 
 	/**
 	 * Retrieves the location of each user from a list, adds it to the user's visited locations,
-	 * and updates the list of the user's accessible rewards.
+	 * and updates the list of the user's accessible rewards. The users' materialized nearby
+	 * attractions are refreshed in the background.
 	 * @param users a list of {@link User} to track locations for
 	 */
 	public void trackUsersLocations(List<User> users) {
-        users.parallelStream().forEach(this::trackUserLocation);
+        users.parallelStream().forEach(Tracer.wrap((User user) -> tryTrackUserLocation(user)));
     }
 
+	/**
+	 * Tracks a user's location, logging instead of propagating a dependency failure so that
+	 * one failing user does not abort the tracking of the others. A user whose partition
+	 * moved to another node since the list was built is skipped.
+	 */
+	private void tryTrackUserLocation(User user) {
+		if (!partitionCoordinator.owns(user.getUserId())) {
+			return;
+		}
+		try {
+			VisitedLocation visitedLocation = trackUserLocation(user);
+			refreshNearbyAttractions(user, visitedLocation.location).exceptionally(e -> {
+				logger.warn("Could not refresh nearby attractions of {}: {}", user.getUserName(), e.getMessage());
+				return null;
+			});
+		} catch (DependencyUnavailableException | CompletionException e) {
+			logger.warn("Could not track user {}: {}", user.getUserName(), e.getMessage());
+		}
+	}
+
 	/**
 	 * Returns the nearest tourist attractions to the specified user location sorted by ascending distance
 	 * from the given location.
@@ -136,12 +446,142 @@ public class TourGuideService {
 	 * @return a list of the nearest {@link Attraction}
 	 */
 	public List<Attraction> getNearByAttractions(VisitedLocation visitedLocation) {
-		return allAttractions.stream()
-				.sorted(Comparator.comparingDouble(attraction ->
-						rewardsService.getDistance(visitedLocation.location,
-													new Location(attraction.latitude, attraction.longitude))))
-				.limit(Constants.NB_OF_NEARBY_ATTRACTIONS)
-				.toList();
+		NearestAttractions nearest = selectNearestAttractions(visitedLocation.location);
+		Attraction[] attractions = new Attraction[nearest.count()];
+		for (int i = 0; i < attractions.length; i++) {
+			attractions[i] = attractionIndex.get(nearest.ordinal(i));
+		}
+		return List.of(attractions);
+	}
+
+	/**
+	 * Returns detailed information about the attractions nearest to the user's last known
+	 * location, sorted by ascending distance.
+	 * <p>
+	 * The result is materialized in the user's {@link NearbyAttractionsView}, kept up to date
+	 * by the {@link Tracker} with {@link #refreshNearbyAttractions(User, Location)}. While the
+	 * user stayed within {@link Constants#NEARBY_ATTRACTIONS_REFRESH_MILES} of the location it
+	 * was computed for, it is returned as is, its distances being those from that location.
+	 * Otherwise it is computed on the calling thread: the nearest attractions are selected in a
+	 * reused per-thread buffer, and their reward points fetched concurrently.
+	 * </p>
+	 *
+	 * @param user the user for whom nearby attractions are searched
+	 * @return a list of {@link NearbyAttractionDto}, nearest first
+	 */
+	public List<NearbyAttractionDto> getNearByAttractionsInfo(User user) {
+		Location userLocation = getUserLocation(user).location;
+		NearbyAttractionsView view = user.getNearbyAttractions();
+		if (isCurrent(view, userLocation)) {
+			return view.attractions();
+		}
+		return computeNearbyAttractions(user, userLocation).join().attractions();
+	}
+
+	/**
+	 * Recomputes the materialized nearby attractions of the user, off the calling thread, if
+	 * the user moved more than {@link Constants#NEARBY_ATTRACTIONS_REFRESH_MILES} since they
+	 * were computed.
+	 * <p>
+	 * At most one refresh is pending per user: while one is running, the refresh of a newer
+	 * location is dropped and the running one returned, the next tracking cycle catching up.
+	 * The reward executor therefore never holds more than one refresh per user, however far
+	 * behind the tracking cycles are.
+	 * </p>
+	 *
+	 * @param user the tracked user
+	 * @param location the user's new location
+	 * @return a future completing once the view is up to date, or once the pending refresh completed
+	 */
+	public CompletableFuture<NearbyAttractionsView> refreshNearbyAttractions(User user, Location location) {
+		NearbyAttractionsView view = user.getNearbyAttractions();
+		if (isCurrent(view, location)) {
+			return CompletableFuture.completedFuture(view);
+		}
+		CompletableFuture<NearbyAttractionsView> refresh = new CompletableFuture<>();
+		CompletableFuture<NearbyAttractionsView> pending = nearbyAttractionsRefreshes.putIfAbsent(user, refresh);
+		if (pending != null) {
+			return pending;
+		}
+		try {
+			computeNearbyAttractions(user, location).whenComplete((refreshed, e) -> {
+				nearbyAttractionsRefreshes.remove(user, refresh);
+				if (e != null) {
+					refresh.completeExceptionally(e);
+				} else {
+					refresh.complete(refreshed);
+				}
+			});
+		} catch (RuntimeException e) {
+			nearbyAttractionsRefreshes.remove(user, refresh);
+			refresh.completeExceptionally(e);
+		}
+		return refresh;
+	}
+
+	private boolean isCurrent(NearbyAttractionsView view, Location location) {
+		return view != null && rewardsService.getDistance(view.location(), location) <= Constants.NEARBY_ATTRACTIONS_REFRESH_MILES;
+	}
+
+	private CompletableFuture<NearbyAttractionsView> computeNearbyAttractions(User user, Location userLocation) {
+		NearestAttractions nearest = selectNearestAttractions(userLocation);
+		int[] ordinals = new int[nearest.count()];
+		double[] distances = new double[nearest.count()];
+		for (int i = 0; i < ordinals.length; i++) {
+			ordinals[i] = nearest.ordinal(i);
+			distances[i] = nearest.distance(i);
+		}
+
+		return rewardsService.getRewardPoints(ordinals, user).thenApply(points -> {
+			NearbyAttractionDto[] dtos = new NearbyAttractionDto[ordinals.length];
+			for (int i = 0; i < dtos.length; i++) {
+				dtos[i] = new NearbyAttractionDto(
+					attractionIndex.get(ordinals[i]).attractionName,
+					attractionIndex.location(ordinals[i]),
+					userLocation,
+					distances[i],
+					points[i]
+				);
+			}
+			NearbyAttractionsView view = new NearbyAttractionsView(userLocation, List.of(dtos));
+			user.setNearbyAttractions(view);
+			return view;
+		});
+	}
+
+	private NearestAttractions selectNearestAttractions(Location location) {
+		NearestAttractions nearest = nearestAttractions.get();
+		nearest.select(attractionIndex, location.latitude, location.longitude);
+		return nearest;
+	}
+
+	/**
+	 * Retrieves the attractions within the user's attraction proximity of their current location,
+	 * or within the proximity buffer if they have no preference. The attractions are found among
+	 * the candidates of the location's geo-cell for that radius, computed once per radius and
+	 * shared by the users with the same one.
+	 *
+	 * @param user the user whose range applies
+	 * @return a list of {@link NearbyAttractionDto}, nearest first
+	 */
+	public List<NearbyAttractionDto> getAttractionsWithinRange(User user) {
+		Location userLocation = getUserLocation(user).location;
+		List<Integer> ordinals = new ArrayList<>();
+		rewardsService.forEachAttractionWithinRange(user, userLocation, ordinals::add);
+		int[] sorted = ordinals.stream()
+				.sorted(Comparator.comparingDouble(ordinal -> attractionIndex.distance(ordinal, userLocation.latitude,
+						userLocation.longitude)))
+				.mapToInt(Integer::intValue)
+				.toArray();
+
+		int[] points = rewardsService.getRewardPoints(sorted, user).join();
+		List<NearbyAttractionDto> attractions = new ArrayList<>(sorted.length);
+		for (int i = 0; i < sorted.length; i++) {
+			Location attractionLocation = attractionIndex.location(sorted[i]);
+			attractions.add(new NearbyAttractionDto(attractionIndex.get(sorted[i]).attractionName, attractionLocation,
+					userLocation, rewardsService.getDistance(userLocation, attractionLocation), points[i]));
+		}
+		return attractions;
 	}
 
 	/**
@@ -165,7 +605,9 @@ public class TourGuideService {
 		Location userLocation = getUserLocation(user).location;
 
 		return attractions.stream().map(attraction -> {
-			Location attractionLocation = new Location(attraction.latitude, attraction.longitude);
+			int ordinal = attractionIndex.ordinalOf(attraction.attractionName);
+			Location attractionLocation = ordinal >= 0 ? attractionIndex.location(ordinal)
+					: new Location(attraction.latitude, attraction.longitude);
 			double distance = rewardsService.getDistance(userLocation, attractionLocation);
 			int rewardPoints = rewardsService.getRewardPoints(attraction, user);
 
@@ -179,12 +621,33 @@ public class TourGuideService {
 		}).toList();
 	}
 
+	private void recordTraffic(VisitedLocation visitedLocation) {
+		attractionTraffic.recordPosition(visitedLocation.location);
+		rewardsService.forEachNearbyAttraction(visitedLocation.location, attractionTraffic::recordVisit);
+	}
+
+	/**
+	 * Stops the tracker and the trip deal refresher, and unregisters the shutdown hook so that
+	 * a closed service can be garbage collected. The rewards service, which may be shared, is
+	 * left running.
+	 */
+	@Override
+	public void close() {
+		stop();
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			// the JVM is already shutting down
+		}
+	}
+
+	private void stop() {
+		tracker.stopTracking();
+		tripDealRefresher.close();
+	}
+
 	private void addShutDownHook() {
-		Runtime.getRuntime().addShutdownHook(new Thread() {
-			public void run() {
-				tracker.stopTracking();
-			}
-		});
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
 	}
 
 	/**********************************************************************************
@@ -195,17 +658,19 @@ public class TourGuideService {
 	private static final String tripPricerApiKey = "test-server-api-key";
 	// Database connection will be used for external users, but for testing purposes
 	// internal users are provided and stored in memory
-	private final Map<String, User> internalUserMap = new HashMap<>();
+	private final Map<String, User> internalUserMap = new ConcurrentHashMap<>();
 
 	private void initializeInternalUsers() {
 		IntStream.range(0, InternalTestHelper.getInternalUserNumber()).forEach(i -> {
 			String userName = "internalUser" + i;
 			String phone = "000";
 			String email = userName + "@tourGuide.com";
-			User user = new User(UUID.randomUUID(), userName, phone, email);
+			// derived from the name, so that nodes sharing the population agree on user ids
+			User user = new User(UUID.nameUUIDFromBytes(userName.getBytes(StandardCharsets.UTF_8)), userName, phone, email);
 			generateUserLocationHistory(user);
 
 			internalUserMap.put(userName, user);
+			latestPositions.record(user, user.getLastVisitedLocation());
 		});
         logger.debug("Created {} internal test users.", InternalTestHelper.getInternalUserNumber());
 	}
@@ -0,0 +1,127 @@
+package com.openclassrooms.tourguide.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.openclassrooms.tourguide.user.TripDealQuery;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Reprices users' trip deals in the background once their reward points or preferences
+ * changed, so that {@code /getTripDeals} can answer from {@link User#getTripDeals()}.
+ * <p>
+ * Changes are debounced: a user is repriced once no change was scheduled for them during
+ * the debounce delay, so that the rewards granted by one tracking pass cost a single
+ * TripPricer call. Due users are repriced in batches of at most {@code batchSize}, a user
+ * whose deals already match their current {@link TripDealQuery} being skipped.
+ * </p>
+ */
+public class TripDealRefresher implements RewardListener, AutoCloseable {
+	public static final Duration DEFAULT_DEBOUNCE = Duration.ofSeconds(2);
+	public static final int DEFAULT_BATCH_SIZE = 100;
+	private static final int PRICING_THREADS = 8;
+	private final Logger logger = LoggerFactory.getLogger(TripDealRefresher.class);
+	private final Map<User, Long> pending = new ConcurrentHashMap<>();
+	private final Consumer<User> repricer;
+	private final long debounceNanos;
+	private final int batchSize;
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(daemon("trip-deal-refresher"));
+	private final ExecutorService pricingExecutor = Executors.newFixedThreadPool(PRICING_THREADS, daemon("trip-deal-pricer"));
+
+	/**
+	 * @param repricer prices and stores the trip deals of a user
+	 * @param debounce the delay without change after which a user is repriced
+	 * @param batchSize the maximum number of users repriced per batch
+	 */
+	public TripDealRefresher(Consumer<User> repricer, Duration debounce, int batchSize) {
+		this.repricer = repricer;
+		this.debounceNanos = debounce.toNanos();
+		this.batchSize = batchSize;
+		long tick = Math.max(TimeUnit.MILLISECONDS.toNanos(10), debounceNanos / 4);
+		scheduler.scheduleWithFixedDelay(this::refreshDueUsers, tick, tick, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Schedules the repricing of the user's trip deals, postponing an already scheduled one.
+	 * Cheap enough to be called while holding the user's lock.
+	 */
+	public void schedule(User user) {
+		pending.put(user, System.nanoTime());
+	}
+
+	@Override
+	public void onRewardGranted(User user, int attractionOrdinal, int rewardPoints) {
+		schedule(user);
+	}
+
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+		pricingExecutor.shutdownNow();
+	}
+
+	private void refreshDueUsers() {
+		try {
+			List<User> batch;
+			while (!(batch = takeDueUsers()).isEmpty()) {
+				pricingExecutor.invokeAll(batch.stream().map(this::repricing).toList());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			logger.warn("Trip deal refresh failed: {}", e.getMessage());
+		}
+	}
+
+	private List<User> takeDueUsers() {
+		long now = System.nanoTime();
+		List<User> batch = new ArrayList<>();
+		Iterator<Map.Entry<User, Long>> entries = pending.entrySet().iterator();
+		while (entries.hasNext() && batch.size() < batchSize) {
+			Map.Entry<User, Long> entry = entries.next();
+			if (now - entry.getValue() >= debounceNanos && pending.remove(entry.getKey(), entry.getValue())) {
+				batch.add(entry.getKey());
+			}
+		}
+		return batch;
+	}
+
+	private Callable<Void> repricing(User user) {
+		return () -> {
+			if (!TripDealQuery.of(user).equals(user.getTripDealsQuery())) {
+				try {
+					repricer.accept(user);
+				} catch (RuntimeException e) {
+					logger.warn("Could not reprice trip deals of {}: {}", user.getUserName(), e.getMessage());
+				}
+			}
+			return null;
+		};
+	}
+
+	private static ThreadFactory daemon(String name) {
+		return runnable -> {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
@@ -0,0 +1,56 @@
+package com.openclassrooms.tourguide.tracing;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Appends spans to a file, one JSON object per line, for offline analysis. The file is
+ * flushed whenever a root span ends, i.e. once per complete trace. Spans ending after the
+ * exporter is closed are dropped.
+ */
+public class FileSpanExporter implements SpanExporter, Closeable {
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final BufferedWriter writer;
+	private boolean closed;
+
+	public FileSpanExporter(Path path) throws IOException {
+		this.writer = Files.newBufferedWriter(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	@Override
+	public void export(SpanData span) {
+		try {
+			String line = objectMapper.writeValueAsString(span);
+			synchronized (writer) {
+				if (closed) {
+					return;
+				}
+				writer.write(line);
+				writer.newLine();
+				if (span.parentSpanId() == null) {
+					writer.flush();
+				}
+			}
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (writer) {
+			closed = true;
+			writer.close();
+		}
+	}
+}
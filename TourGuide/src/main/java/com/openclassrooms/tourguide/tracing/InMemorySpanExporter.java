@@ -0,0 +1,46 @@
+package com.openclassrooms.tourguide.tracing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the most recent spans in a fixed-size ring, older spans being overwritten.
+ */
+public class InMemorySpanExporter implements SpanExporter {
+	private final AtomicReferenceArray<SpanData> spans;
+	private final AtomicLong exported = new AtomicLong();
+
+	/**
+	 * @param capacity the number of spans kept
+	 */
+	public InMemorySpanExporter(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Span capacity must be positive");
+		}
+		this.spans = new AtomicReferenceArray<>(capacity);
+	}
+
+	@Override
+	public void export(SpanData span) {
+		spans.set((int) (exported.getAndIncrement() % spans.length()), span);
+	}
+
+	/**
+	 * @return the spans of the trace, ordered by start time
+	 */
+	@Override
+	public List<SpanData> getTrace(String traceId) {
+		List<SpanData> trace = new ArrayList<>();
+		for (int i = 0; i < spans.length(); i++) {
+			SpanData span = spans.get(i);
+			if (span != null && span.traceId().equals(traceId)) {
+				trace.add(span);
+			}
+		}
+		trace.sort(Comparator.comparingLong(SpanData::startEpochMicros));
+		return trace;
+	}
+}
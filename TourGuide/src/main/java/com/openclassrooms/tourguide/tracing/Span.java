@@ -0,0 +1,62 @@
+package com.openclassrooms.tourguide.tracing;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A timed operation of a trace, made current on its thread from {@link Tracer#startSpan(String)}
+ * until it is closed. Spans must be closed on the thread that started them, typically with a
+ * try-with-resources statement.
+ */
+public class Span implements AutoCloseable {
+	static final Span NOOP = new Span(null, null, null, null, null);
+
+	private final String traceId;
+	private final String spanId;
+	private final String parentSpanId;
+	private final String name;
+	private final Span previous;
+	private final long startEpochMicros;
+	private final long startNanos;
+	private boolean error;
+	private boolean closed;
+
+	Span(String traceId, String spanId, String parentSpanId, String name, Span previous) {
+		this.traceId = traceId;
+		this.spanId = spanId;
+		this.parentSpanId = parentSpanId;
+		this.name = name;
+		this.previous = previous;
+		this.startEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+		this.startNanos = System.nanoTime();
+	}
+
+	public String getTraceId() {
+		return traceId;
+	}
+
+	public String getSpanId() {
+		return spanId;
+	}
+
+	/**
+	 * Marks the measured operation as failed.
+	 */
+	public void setError() {
+		this.error = true;
+	}
+
+	/**
+	 * Ends the span, exports it and makes the enclosing span current again.
+	 */
+	@Override
+	public void close() {
+		if (this == NOOP || closed) {
+			return;
+		}
+		closed = true;
+		long durationMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+		Tracer.restore(previous);
+		Tracer.getExporter().export(new SpanData(traceId, spanId, parentSpanId, name, startEpochMicros, durationMicros,
+				Thread.currentThread().getName(), error));
+	}
+}
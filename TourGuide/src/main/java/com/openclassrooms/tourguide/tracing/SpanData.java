@@ -0,0 +1,23 @@
+package com.openclassrooms.tourguide.tracing;
+
+/**
+ * A finished span, as handed to a {@link SpanExporter}.
+ *
+ * @param traceId id shared by every span of the trace, 32 hex digits
+ * @param spanId id of the span, 16 hex digits
+ * @param parentSpanId id of the enclosing span, or null for the root span of the trace
+ * @param name what the span measured
+ * @param startEpochMicros wall-clock start time, in microseconds since the epoch
+ * @param durationMicros duration in microseconds
+ * @param threadName the thread the span ran on
+ * @param error true if the measured operation failed
+ */
+public record SpanData(String traceId,
+					   String spanId,
+					   String parentSpanId,
+					   String name,
+					   long startEpochMicros,
+					   long durationMicros,
+					   String threadName,
+					   boolean error) {
+}
@@ -0,0 +1,26 @@
+package com.openclassrooms.tourguide.tracing;
+
+import java.util.List;
+
+/**
+ * Destination of finished spans. Called concurrently from every traced thread.
+ */
+@FunctionalInterface
+public interface SpanExporter {
+
+	/**
+	 * Exporter of a disabled tracer, spans are not even created.
+	 */
+	SpanExporter NONE = span -> {
+	};
+
+	void export(SpanData span);
+
+	/**
+	 * @param traceId the id of a trace
+	 * @return the spans of the trace still held by this exporter, empty if it does not hold spans
+	 */
+	default List<SpanData> getTrace(String traceId) {
+		return List.of();
+	}
+}
@@ -0,0 +1,140 @@
+package com.openclassrooms.tourguide.tracing;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Entry point of the local tracing.
+ * <p>
+ * The current span of each thread is held in a thread local. Work handed over to another
+ * thread only stays in the same trace if it is wrapped with one of the {@code wrap} methods,
+ * which capture the current span and make it current again on the thread running the work.
+ * Tracing is disabled, and spans are not created, until an exporter is set.
+ * </p>
+ */
+public final class Tracer {
+	private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+	private static volatile SpanExporter exporter = SpanExporter.NONE;
+
+	private Tracer() {
+	}
+
+	public static void setExporter(SpanExporter spanExporter) {
+		exporter = spanExporter;
+	}
+
+	public static SpanExporter getExporter() {
+		return exporter;
+	}
+
+	public static boolean isEnabled() {
+		return exporter != SpanExporter.NONE;
+	}
+
+	/**
+	 * @return the current span of this thread, or null if none
+	 */
+	public static Span current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Starts a span, child of the current span of this thread or root of a new trace.
+	 *
+	 * @param name what the span measures
+	 * @return the started span, to be closed once the operation is done
+	 */
+	public static Span startSpan(String name) {
+		if (!isEnabled()) {
+			return Span.NOOP;
+		}
+		Span parent = CURRENT.get();
+		if (parent == null) {
+			return start(newTraceId(), null, name);
+		}
+		return start(parent.getTraceId(), parent.getSpanId(), name);
+	}
+
+	/**
+	 * Starts a span continuing a trace begun in another process.
+	 *
+	 * @param name what the span measures
+	 * @param traceId the id of the remote trace
+	 * @param parentSpanId the id of the remote parent span
+	 * @return the started span, to be closed once the operation is done
+	 */
+	public static Span startSpan(String name, String traceId, String parentSpanId) {
+		if (!isEnabled()) {
+			return Span.NOOP;
+		}
+		return start(traceId, parentSpanId, name);
+	}
+
+	private static Span start(String traceId, String parentSpanId, String name) {
+		Span span = new Span(traceId, newSpanId(), parentSpanId, name, CURRENT.get());
+		CURRENT.set(span);
+		return span;
+	}
+
+	static void restore(Span previous) {
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+
+	public static Runnable wrap(Runnable task) {
+		Span captured = CURRENT.get();
+		if (captured == null) {
+			return task;
+		}
+		return () -> {
+			Span previous = CURRENT.get();
+			CURRENT.set(captured);
+			try {
+				task.run();
+			} finally {
+				restore(previous);
+			}
+		};
+	}
+
+	public static <T> Consumer<T> wrap(Consumer<T> action) {
+		Span captured = CURRENT.get();
+		if (captured == null) {
+			return action;
+		}
+		return value -> {
+			Span previous = CURRENT.get();
+			CURRENT.set(captured);
+			try {
+				action.accept(value);
+			} finally {
+				restore(previous);
+			}
+		};
+	}
+
+	/**
+	 * @return an executor running each task in the trace of the thread that submitted it
+	 */
+	public static ExecutorService wrap(ExecutorService executorService) {
+		return new TracingExecutorService(executorService);
+	}
+
+	private static String newTraceId() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return hex(random.nextLong()) + hex(random.nextLong());
+	}
+
+	private static String newSpanId() {
+		return hex(ThreadLocalRandom.current().nextLong());
+	}
+
+	private static String hex(long value) {
+		String digits = Long.toHexString(value);
+		return "0".repeat(16 - digits.length()) + digits;
+	}
+}
@@ -0,0 +1,60 @@
+package com.openclassrooms.tourguide.tracing;
+
+import java.io.IOException;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Opens a root span for each HTTP request, or continues the trace of a W3C
+ * {@code traceparent} request header. The trace id is returned in the {@code X-Trace-Id}
+ * response header, so that a slow request can be looked up with {@code /getTrace}.
+ */
+@Component
+public class TracingFilter extends OncePerRequestFilter {
+	static final String TRACE_ID_HEADER = "X-Trace-Id";
+	private static final String TRACEPARENT_HEADER = "traceparent";
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		if (!Tracer.isEnabled()) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		String name = request.getMethod() + " " + request.getRequestURI();
+		String[] traceparent = parseTraceparent(request.getHeader(TRACEPARENT_HEADER));
+		try (Span span = traceparent == null ? Tracer.startSpan(name) : Tracer.startSpan(name, traceparent[0], traceparent[1])) {
+			response.setHeader(TRACE_ID_HEADER, span.getTraceId());
+			try {
+				chain.doFilter(request, response);
+			} catch (IOException | ServletException | RuntimeException e) {
+				span.setError();
+				throw e;
+			}
+			if (response.getStatus() >= 500) {
+				span.setError();
+			}
+		}
+	}
+
+	/**
+	 * @return the trace id and parent span id of a {@code version-traceid-parentid-flags} header, or null
+	 */
+	private static String[] parseTraceparent(String header) {
+		if (header == null) {
+			return null;
+		}
+		String[] fields = header.trim().split("-");
+		if (fields.length != 4 || fields[1].length() != 32 || fields[2].length() != 16) {
+			return null;
+		}
+		return new String[] {fields[1], fields[2]};
+	}
+}
@@ -0,0 +1,48 @@
+package com.openclassrooms.tourguide.tracker;
+
+import java.util.Date;
+import java.util.UUID;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * One location of a recorded trace, as GpsUtil would have returned it.
+ *
+ * @param userId the id of the tracked user
+ * @param latitude latitude of the location
+ * @param longitude longitude of the location
+ * @param timestamp time of the visit, in milliseconds since the epoch
+ */
+public record TraceEvent(UUID userId,
+						 double latitude,
+						 double longitude,
+						 long timestamp) {
+
+	public static TraceEvent of(VisitedLocation visitedLocation) {
+		return new TraceEvent(visitedLocation.userId, visitedLocation.location.latitude,
+				visitedLocation.location.longitude, visitedLocation.timeVisited.getTime());
+	}
+
+	/**
+	 * Parses a {@code userId,latitude,longitude,timestamp} line of a trace file.
+	 *
+	 * @throws IllegalArgumentException if the line is malformed
+	 */
+	public static TraceEvent parse(String line) {
+		String[] fields = line.split(",");
+		if (fields.length != 4) {
+			throw new IllegalArgumentException("Expected userId,latitude,longitude,timestamp but got: " + line);
+		}
+		return new TraceEvent(UUID.fromString(fields[0].trim()), Double.parseDouble(fields[1].trim()),
+				Double.parseDouble(fields[2].trim()), Long.parseLong(fields[3].trim()));
+	}
+
+	public String toCsv() {
+		return userId + "," + latitude + "," + longitude + "," + timestamp;
+	}
+
+	public VisitedLocation toVisitedLocation() {
+		return new VisitedLocation(userId, new Location(latitude, longitude), new Date(timestamp));
+	}
+}
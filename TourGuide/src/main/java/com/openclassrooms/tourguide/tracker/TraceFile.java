@@ -0,0 +1,52 @@
+package com.openclassrooms.tourguide.tracker;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Reads and writes location traces as CSV files with a {@code userId,latitude,longitude,timestamp}
+ * header and one {@link TraceEvent} per line, in replay order.
+ */
+public final class TraceFile {
+	public static final String HEADER = "userId,latitude,longitude,timestamp";
+
+	private TraceFile() {
+	}
+
+	/**
+	 * Lazily reads a trace file. The returned stream must be closed to release the file.
+	 */
+	public static Stream<TraceEvent> read(Path path) throws IOException {
+		return Files.lines(path)
+				.filter(line -> !line.isBlank() && !line.startsWith(HEADER))
+				.map(TraceEvent::parse);
+	}
+
+	public static void write(Path path, Stream<TraceEvent> events) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+			writer.write(HEADER);
+			writer.newLine();
+			for (TraceEvent event : (Iterable<TraceEvent>) events::iterator) {
+				writer.write(event.toCsv());
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Records the location histories of the given users as a single trace ordered by time.
+	 */
+	public static void record(Path path, Collection<User> users) throws IOException {
+		write(path, users.stream()
+				.flatMap(user -> user.getVisitedLocations().stream())
+				.map(TraceEvent::of)
+				.sorted(Comparator.comparingLong(TraceEvent::timestamp)));
+	}
+}
@@ -0,0 +1,58 @@
+package com.openclassrooms.tourguide.tracker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a trace replay.
+ * <p>
+ * Stage times are summed over every replay lane, so they measure the cost of each stage
+ * rather than wall-clock time, and can be divided by the number of events to size nodes.
+ * </p>
+ *
+ * @param events the number of events replayed
+ * @param skippedEvents the number of events of unknown users, which were ignored
+ * @param failedEvents the number of events whose reward calculation failed
+ * @param elapsedNanos wall-clock duration of the replay
+ * @param readNanos time spent reading and parsing the trace
+ * @param recordNanos time spent adding the locations to the users' histories and traffic counters
+ * @param rewardNanos time spent calculating rewards
+ */
+public record TraceReplayReport(long events,
+								long skippedEvents,
+								long failedEvents,
+								long elapsedNanos,
+								long readNanos,
+								long recordNanos,
+								long rewardNanos) {
+
+	/**
+	 * @return the sustained throughput of the replay
+	 */
+	public double eventsPerSecond() {
+		return elapsedNanos == 0 ? 0 : events * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+	}
+
+	public double readMicrosPerEvent() {
+		return perEvent(readNanos);
+	}
+
+	public double recordMicrosPerEvent() {
+		return perEvent(recordNanos);
+	}
+
+	public double rewardMicrosPerEvent() {
+		return perEvent(rewardNanos);
+	}
+
+	private double perEvent(long nanos) {
+		return events == 0 ? 0 : nanos / 1000.0 / events;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d events (%d skipped, %d failed) in %d ms: %.0f events/s; per event: read %.1f us, "
+				+ "record %.1f us, rewards %.1f us", events, skippedEvents, failedEvents,
+				TimeUnit.NANOSECONDS.toMillis(elapsedNanos), eventsPerSecond(), readMicrosPerEvent(),
+				recordMicrosPerEvent(), rewardMicrosPerEvent());
+	}
+}
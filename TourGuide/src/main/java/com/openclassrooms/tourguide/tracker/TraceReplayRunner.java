@@ -0,0 +1,51 @@
+package com.openclassrooms.tourguide.tracker;
+
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+
+/**
+ * Trace replay mode, enabled by setting {@code tourguide.replay.trace} to the path of a
+ * {@link TraceFile}. Once the application has started, the {@link Tracker} is stopped and the
+ * trace is replayed over {@code tourguide.replay.lanes} lanes, by default one per processor.
+ * The replay report is logged; the application keeps running so that the resulting users,
+ * rewards and traffic can be inspected through the API.
+ */
+@Component
+@ConditionalOnProperty("tourguide.replay.trace")
+public class TraceReplayRunner implements ApplicationRunner {
+	private final Logger logger = LoggerFactory.getLogger(TraceReplayRunner.class);
+	private final TourGuideService tourGuideService;
+	private final RewardsService rewardsService;
+
+	@Value("${tourguide.replay.trace}")
+	private Path trace;
+
+	@Value("${tourguide.replay.lanes:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+	private int lanes;
+
+	public TraceReplayRunner(TourGuideService tourGuideService, RewardsService rewardsService) {
+		this.tourGuideService = tourGuideService;
+		this.rewardsService = rewardsService;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		tourGuideService.tracker.stopTracking();
+		logger.info("Replaying trace {} over {} lanes", trace, lanes);
+		try (Stream<TraceEvent> events = TraceFile.read(trace)) {
+			TraceReplayReport report = new TraceReplayer(tourGuideService, rewardsService, lanes).replay(events);
+			logger.info("Trace replayed: {}", report);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package com.openclassrooms.tourguide.tracker;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Replays a recorded location trace through the tracking and reward path, as fast as it
+ * can be processed.
+ * <p>
+ * Unlike the {@link Tracker}, the replay neither waits between rounds nor calls GpsUtil:
+ * each {@link TraceEvent} is added to the history of its user and evaluated for rewards.
+ * Events are dispatched to a fixed number of lanes by user id, so that the events of a
+ * user are processed one at a time and in trace order while different users are processed
+ * in parallel.
+ * </p>
+ */
+public class TraceReplayer {
+	private static final int LANE_CAPACITY = 1024;
+	private static final TraceEvent END_OF_TRACE = new TraceEvent(new UUID(0, 0), 0, 0, 0);
+
+	private final Logger logger = LoggerFactory.getLogger(TraceReplayer.class);
+	private final TourGuideService tourGuideService;
+	private final RewardsService rewardsService;
+	private final int lanes;
+
+	/**
+	 * @param tourGuideService the service owning the users the trace refers to
+	 * @param rewardsService the service granting rewards
+	 * @param lanes the number of users processed in parallel
+	 */
+	public TraceReplayer(TourGuideService tourGuideService, RewardsService rewardsService, int lanes) {
+		if (lanes < 1) {
+			throw new IllegalArgumentException("At least one replay lane is needed");
+		}
+		this.tourGuideService = tourGuideService;
+		this.rewardsService = rewardsService;
+		this.lanes = lanes;
+	}
+
+	/**
+	 * Replays every event of the trace and waits for the replay to complete. Events of users
+	 * unknown to the {@link TourGuideService} are skipped.
+	 *
+	 * @param trace the events to replay, in trace order
+	 * @return throughput and per-stage costs of the replay
+	 */
+	public TraceReplayReport replay(Stream<TraceEvent> trace) throws InterruptedException {
+		Map<UUID, User> usersById = tourGuideService.getAllUsers().stream()
+				.collect(Collectors.toMap(User::getUserId, Function.identity()));
+		List<BlockingQueue<TraceEvent>> queues = new ArrayList<>(lanes);
+		ExecutorService executorService = Executors.newFixedThreadPool(lanes);
+		List<Future<?>> laneFutures = new ArrayList<>(lanes);
+		Counters counters = new Counters();
+		for (int i = 0; i < lanes; i++) {
+			BlockingQueue<TraceEvent> queue = new ArrayBlockingQueue<>(LANE_CAPACITY);
+			queues.add(queue);
+			laneFutures.add(executorService.submit(() -> drain(queue, usersById, counters)));
+		}
+
+		long start = System.nanoTime();
+		long readNanos = 0;
+		try {
+			Iterator<TraceEvent> iterator = trace.iterator();
+			while (true) {
+				long readStart = System.nanoTime();
+				if (!iterator.hasNext()) {
+					break;
+				}
+				TraceEvent event = iterator.next();
+				readNanos += System.nanoTime() - readStart;
+				queues.get(Math.floorMod(event.userId().hashCode(), lanes)).put(event);
+			}
+		} finally {
+			for (BlockingQueue<TraceEvent> queue : queues) {
+				queue.put(END_OF_TRACE);
+			}
+			for (Future<?> laneFuture : laneFutures) {
+				try {
+					laneFuture.get();
+				} catch (Exception e) {
+					logger.error("Replay lane failed", e);
+				}
+			}
+			executorService.shutdown();
+		}
+
+		return new TraceReplayReport(counters.events.sum(), counters.skippedEvents.sum(), counters.failedEvents.sum(),
+				System.nanoTime() - start, readNanos, counters.recordNanos.sum(), counters.rewardNanos.sum());
+	}
+
+	private void drain(BlockingQueue<TraceEvent> queue, Map<UUID, User> usersById, Counters counters) {
+		try {
+			for (TraceEvent event = queue.take(); event != END_OF_TRACE; event = queue.take()) {
+				User user = usersById.get(event.userId());
+				if (user == null) {
+					counters.skippedEvents.increment();
+					continue;
+				}
+				replay(user, event.toVisitedLocation(), counters);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void replay(User user, VisitedLocation visitedLocation, Counters counters) {
+		long start = System.nanoTime();
+		tourGuideService.recordUserLocation(user, visitedLocation);
+		long recorded = System.nanoTime();
+		counters.recordNanos.add(recorded - start);
+		try {
+			rewardsService.calculateRewards(user, visitedLocation).join();
+		} catch (RuntimeException e) {
+			counters.failedEvents.increment();
+			logger.warn("Could not calculate rewards of user {}: {}", user.getUserName(), e.getMessage());
+		}
+		counters.rewardNanos.add(System.nanoTime() - recorded);
+		counters.events.increment();
+	}
+
+	private static class Counters {
+		final LongAdder events = new LongAdder();
+		final LongAdder skippedEvents = new LongAdder();
+		final LongAdder failedEvents = new LongAdder();
+		final LongAdder recordNanos = new LongAdder();
+		final LongAdder rewardNanos = new LongAdder();
+	}
+}
@@ -1,5 +1,6 @@
 package com.openclassrooms.tourguide.tracker;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -9,7 +10,10 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.openclassrooms.tourguide.monitoring.TrackerCycleEvent;
 import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.tracing.Span;
+import com.openclassrooms.tourguide.tracing.Tracer;
 import com.openclassrooms.tourguide.user.User;
 
 public class Tracker extends Thread {
@@ -17,7 +21,8 @@ public class Tracker extends Thread {
 	private static final long trackingPollingInterval = TimeUnit.MINUTES.toSeconds(5);
 	private final ExecutorService executorService = Executors.newSingleThreadExecutor();
 	private final TourGuideService tourGuideService;
-	private boolean stop = false;
+	private volatile boolean stop = false;
+	private volatile boolean tracking = false;
 
 	public Tracker(TourGuideService tourGuideService) {
 		this.tourGuideService = tourGuideService;
@@ -33,6 +38,25 @@ public class Tracker extends Thread {
 		executorService.shutdownNow();
 	}
 
+	/**
+	 * Stops the Tracker and waits for the cycle in progress, if any, to complete, so that no
+	 * location is tracked once this method returns true.
+	 *
+	 * @param timeout the maximum time to wait
+	 * @return true if the Tracker thread terminated within the timeout
+	 */
+	public boolean stopTracking(Duration timeout) throws InterruptedException {
+		stopTracking();
+		return executorService.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return true while a tracking cycle is calling the external dependencies
+	 */
+	public boolean isTracking() {
+		return tracking;
+	}
+
 	@Override
 	public void run() {
 		StopWatch stopWatch = new StopWatch();
@@ -42,10 +66,19 @@ public class Tracker extends Thread {
 				break;
 			}
 
-			List<User> users = tourGuideService.getAllUsers();
+			List<User> users = tourGuideService.getTrackedUsers();
             logger.debug("Begin Tracker. Tracking {} users.", users.size());
+			TrackerCycleEvent event = new TrackerCycleEvent();
+			event.setUsers(users.size());
+			event.begin();
 			stopWatch.start();
-			tourGuideService.trackUsersLocations(users);
+			tracking = true;
+			try (Span span = Tracer.startSpan("Tracker.cycle")) {
+				tourGuideService.trackUsersLocations(users);
+			} finally {
+				tracking = false;
+				event.commit();
+			}
 			stopWatch.stop();
             logger.debug("Tracker Time Elapsed: {} seconds.", TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()));
 			stopWatch.reset();
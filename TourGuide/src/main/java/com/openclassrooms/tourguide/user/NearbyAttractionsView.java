@@ -0,0 +1,15 @@
+package com.openclassrooms.tourguide.user;
+
+import java.util.List;
+
+import com.openclassrooms.tourguide.dto.NearbyAttractionDto;
+import gpsUtil.location.Location;
+
+/**
+ * Nearby attractions of a user, with their reward points, as computed for a location.
+ *
+ * @param location the location the attractions were selected and measured from
+ * @param attractions the nearest attractions, nearest first
+ */
+public record NearbyAttractionsView(Location location, List<NearbyAttractionDto> attractions) {
+}
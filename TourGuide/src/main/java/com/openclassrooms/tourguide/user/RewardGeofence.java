@@ -0,0 +1,46 @@
+package com.openclassrooms.tourguide.user;
+
+/**
+ * Reward-path bookkeeping of a user.
+ * <p>
+ * Remembers the geo-cell of the last location evaluated for rewards and whether every
+ * candidate attraction of that cell has already been rewarded, so that a new location
+ * falling into the same cell can skip reward evaluation entirely.
+ * </p>
+ */
+public class RewardGeofence {
+	private int cell = -1;
+	private double radius = -1;
+	private boolean exhausted;
+	private int evaluatedLocations;
+
+	/**
+	 * @param cell the geo-cell of the new location
+	 * @param radius the proximity radius, in miles, the candidates of the cell are computed for
+	 * @return true if the user already evaluated this cell and has been rewarded for all its candidates
+	 */
+	public boolean isExhausted(int cell, double radius) {
+		return exhausted && this.cell == cell && this.radius == radius;
+	}
+
+	public void update(int cell, double radius, boolean exhausted) {
+		this.cell = cell;
+		this.radius = radius;
+		this.exhausted = exhausted;
+	}
+
+	public int getCell() {
+		return cell;
+	}
+
+	/**
+	 * @return the number of visited locations, from the start of the history, already evaluated for rewards
+	 */
+	public int getEvaluatedLocations() {
+		return evaluatedLocations;
+	}
+
+	public void setEvaluatedLocations(int evaluatedLocations) {
+		this.evaluatedLocations = evaluatedLocations;
+	}
+}
@@ -0,0 +1,22 @@
+package com.openclassrooms.tourguide.user;
+
+/**
+ * The inputs TripPricer prices a user's trip deals from. Deals priced for a query stay valid
+ * as long as the user's current query is equal to it.
+ *
+ * @param numberOfAdults the number of adults travelling
+ * @param numberOfChildren the number of children travelling
+ * @param tripDuration the duration of the trip in nights
+ * @param cumulativeRewardPoints the reward points the deals are discounted with
+ */
+public record TripDealQuery(int numberOfAdults, int numberOfChildren, int tripDuration, int cumulativeRewardPoints) {
+
+	/**
+	 * @return the query for the user's current preferences and reward points
+	 */
+	public static TripDealQuery of(User user) {
+		UserPreferences preferences = user.getUserPreferences();
+		return new TripDealQuery(preferences.getNumberOfAdults(), preferences.getNumberOfChildren(),
+				preferences.getTripDuration(), user.getCumulativeRewardPoints());
+	}
+}
@@ -4,7 +4,11 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.openclassrooms.tourguide.geo.AttractionIndex;
+import com.openclassrooms.tourguide.history.HistorySegments;
+import com.openclassrooms.tourguide.history.LocationHistory;
 import gpsUtil.location.VisitedLocation;
 import tripPricer.Provider;
 
@@ -14,15 +18,21 @@ public class User {
 	private String phoneNumber;
 	private String emailAddress;
 	private Date latestLocationTimestamp;
-	private final List<VisitedLocation> visitedLocations = new ArrayList<>();
-	private final List<UserReward> userRewards = new ArrayList<>();
+	private final LocationHistory visitedLocations;
+	private final UserRewardStore userRewards = new UserRewardStore();
+	private int cumulativeRewardPoints;
 	private UserPreferences userPreferences = new UserPreferences();
-	private List<Provider> tripDeals = new ArrayList<>();
+	private volatile List<Provider> tripDeals = new ArrayList<>();
+	private volatile TripDealQuery tripDealsQuery;
+	private volatile NearbyAttractionsView nearbyAttractions;
+	private final RewardGeofence rewardGeofence = new RewardGeofence();
+	private final AtomicLong version = new AtomicLong();
 	public User(UUID userId, String userName, String phoneNumber, String emailAddress) {
 		this.userId = userId;
 		this.userName = userName;
 		this.phoneNumber = phoneNumber;
 		this.emailAddress = emailAddress;
+		this.visitedLocations = new LocationHistory(userId);
 	}
 	
 	public UUID getUserId() {
@@ -59,23 +69,167 @@ public class User {
 	
 	public void addToVisitedLocations(VisitedLocation visitedLocation) {
 		visitedLocations.add(visitedLocation);
+		version.incrementAndGet();
 	}
 	
+	/**
+	 * @return the user's history, whose older locations may be archived, see {@link LocationHistory}
+	 */
 	public List<VisitedLocation> getVisitedLocations() {
 		return visitedLocations;
 	}
+
+	/**
+	 * Keeps only the {@code hotLocations} most recent locations on the heap, archiving older
+	 * ones to the segments.
+	 *
+	 * @param segments the store of archived history blocks
+	 * @param hotLocations the number of recent locations kept on the heap
+	 */
+	public void enableHistoryArchive(HistorySegments segments, int hotLocations) {
+		visitedLocations.enableArchive(segments, hotLocations);
+	}
+
+	/**
+	 * @param fromMillis the start of the window, inclusive, in epoch milliseconds
+	 * @param toMillis the end of the window, inclusive, in epoch milliseconds
+	 * @param limit the maximum number of locations to return
+	 * @return the first locations visited within the window, by ascending time
+	 */
+	public List<VisitedLocation> getVisitedLocationsBetween(long fromMillis, long toMillis, int limit) {
+		return visitedLocations.between(fromMillis, toMillis, limit);
+	}
+
+	/**
+	 * @return the number of locations of the history moved to the archive
+	 */
+	public int getArchivedLocationCount() {
+		return visitedLocations.getArchivedCount();
+	}
 	
-	public void clearVisitedLocations() {
+	/**
+	 * Clears the history. Rewards are kept, detached from their location, so that they do not
+	 * point at the locations added afterwards.
+	 */
+	public synchronized void clearVisitedLocations() {
 		visitedLocations.clear();
+		userRewards.detachLocations();
+		version.incrementAndGet();
 	}
-	
-	public void addUserReward(UserReward userReward) {
-		userRewards.add(userReward);
+
+	/**
+	 * @return a counter incremented on every change of the user's visited locations or rewards
+	 */
+	public long getVersion() {
+		return version.get();
 	}
 	
-	public List<UserReward> getUserRewards() {
+	/**
+	 * Records a reward. Rewards are stored as indexes into the catalog and the user's history,
+	 * so unlike a plain list of rewards this rejects a reward that cannot be indexed.
+	 *
+	 * @param userReward the reward to record
+	 * @param attractionIndex the catalog the rewarded attraction is looked up in
+	 * @throws IllegalArgumentException if the attraction is not part of the catalog or the
+	 *         rewarded location is not part of the history
+	 */
+	public void addUserReward(UserReward userReward, AttractionIndex attractionIndex) {
+		int attractionOrdinal = attractionIndex.ordinalOf(userReward.attraction.attractionName);
+		if (attractionOrdinal < 0) {
+			throw new IllegalArgumentException("Unknown attraction: " + userReward.attraction.attractionName);
+		}
+		int locationIndex = indexOfVisitedLocation(userReward.visitedLocation);
+		if (locationIndex < 0) {
+			throw new IllegalArgumentException("Rewarded location is not part of the history of " + userName);
+		}
+		addUserReward(attractionOrdinal, locationIndex, userReward.getRewardPoints());
+	}
+
+	/**
+	 * Records a reward without materializing a {@link UserReward}.
+	 *
+	 * @param attractionOrdinal the ordinal of the attraction in the catalog's {@link AttractionIndex}
+	 * @param locationIndex the index of the rewarded location in {@link #getVisitedLocations()}
+	 * @param rewardPoints the points granted
+	 * @throws IllegalArgumentException if the location index is outside the history
+	 */
+	public void addUserReward(int attractionOrdinal, int locationIndex, int rewardPoints) {
+		if (locationIndex < 0 || locationIndex >= visitedLocations.size()) {
+			throw new IllegalArgumentException("Rewarded location is not part of the history of " + userName);
+		}
+		storeUserReward(attractionOrdinal, locationIndex, rewardPoints);
+	}
+
+	/**
+	 * Records a reward whose location is no longer part of the history, as left by
+	 * {@link #clearVisitedLocations()}.
+	 *
+	 * @param attractionOrdinal the ordinal of the attraction in the catalog's {@link AttractionIndex}
+	 * @param rewardPoints the points granted
+	 */
+	public void addDetachedUserReward(int attractionOrdinal, int rewardPoints) {
+		storeUserReward(attractionOrdinal, UserRewardStore.NO_LOCATION, rewardPoints);
+	}
+
+	private void storeUserReward(int attractionOrdinal, int locationIndex, int rewardPoints) {
+		userRewards.add(attractionOrdinal, locationIndex, rewardPoints);
+		cumulativeRewardPoints += rewardPoints;
+		version.incrementAndGet();
+	}
+
+	/**
+	 * @param attractionOrdinal the ordinal of the attraction in the catalog's {@link AttractionIndex}
+	 * @return true if the user has already been rewarded for the attraction
+	 */
+	public boolean hasUserReward(int attractionOrdinal) {
+		return userRewards.contains(attractionOrdinal);
+	}
+
+	/**
+	 * Builds a view of the user's rewards. A reward whose location has been removed by
+	 * {@link #clearVisitedLocations()} is returned with a {@code null} visited location.
+	 *
+	 * @param attractionIndex the catalog the rewards' attraction ordinals refer to
+	 * @return a new list holding one {@link UserReward} per recorded reward
+	 */
+	public List<UserReward> getUserRewards(AttractionIndex attractionIndex) {
+		int size = userRewards.size();
+		List<UserReward> rewards = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			int locationIndex = userRewards.locationIndex(i);
+			VisitedLocation visitedLocation = locationIndex == UserRewardStore.NO_LOCATION ? null : visitedLocations.get(locationIndex);
+			rewards.add(new UserReward(visitedLocation, attractionIndex.get(userRewards.attractionOrdinal(i)),
+					userRewards.rewardPoints(i)));
+		}
+		return rewards;
+	}
+
+	/**
+	 * @return the sum of the points of every reward of the user, maintained as rewards are added
+	 */
+	public int getCumulativeRewardPoints() {
+		return cumulativeRewardPoints;
+	}
+
+	/**
+	 * @return the user's rewards as stored, to be read while holding the user's lock and never modified
+	 */
+	public UserRewardStore getUserRewardStore() {
 		return userRewards;
 	}
+
+	public int getUserRewardCount() {
+		return userRewards.size();
+	}
+
+	/**
+	 * @param visitedLocation a location of the history
+	 * @return the index of the location in {@link #getVisitedLocations()}, or -1 if it is not part
+	 *         of it
+	 */
+	public int indexOfVisitedLocation(VisitedLocation visitedLocation) {
+		return visitedLocations.lastIndexOfInstance(visitedLocation);
+	}
 	
 	public UserPreferences getUserPreferences() {
 		return userPreferences;
@@ -86,14 +240,48 @@ public class User {
 	}
 
 	public VisitedLocation getLastVisitedLocation() {
-		return visitedLocations.get(visitedLocations.size() - 1);
+		return visitedLocations.last();
 	}
 	
+	public RewardGeofence getRewardGeofence() {
+		return rewardGeofence;
+	}
+
 	public void setTripDeals(List<Provider> tripDeals) {
 		this.tripDeals = tripDeals;
+		this.tripDealsQuery = null;
+	}
+
+	/**
+	 * Stores trip deals along with the query they were priced for.
+	 *
+	 * @param query the preferences and reward points the deals were priced for
+	 * @param tripDeals the priced deals
+	 */
+	public void setTripDeals(TripDealQuery query, List<Provider> tripDeals) {
+		this.tripDeals = tripDeals;
+		this.tripDealsQuery = query;
+	}
+
+	/**
+	 * @return the query the current trip deals were priced for, or null if unknown
+	 */
+	public TripDealQuery getTripDealsQuery() {
+		return tripDealsQuery;
 	}
 	
 	public List<Provider> getTripDeals() {
 		return tripDeals;
 	}
+
+	/**
+	 * @return the materialized nearby attractions of the user, or null if never computed
+	 */
+	public NearbyAttractionsView getNearbyAttractions() {
+		return nearbyAttractions;
+	}
+
+	public void setNearbyAttractions(NearbyAttractionsView nearbyAttractions) {
+		this.nearbyAttractions = nearbyAttractions;
+	}
 }
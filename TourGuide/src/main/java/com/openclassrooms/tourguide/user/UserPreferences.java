@@ -1,8 +1,19 @@
 package com.openclassrooms.tourguide.user;
 
 public class UserPreferences {
+	/**
+	 * Attraction proximity of a user without preference, who is rewarded within the proximity
+	 * buffer of the rewards service.
+	 */
+	public static final int NO_ATTRACTION_PROXIMITY = Integer.MAX_VALUE;
+
+	/**
+	 * Largest attraction proximity, in miles: about half the Earth's circumference, within
+	 * which every attraction already is.
+	 */
+	public static final int MAX_ATTRACTION_PROXIMITY = 12_500;
 	
-	private int attractionProximity = Integer.MAX_VALUE;
+	private int attractionProximity = NO_ATTRACTION_PROXIMITY;
 	private int tripDuration = 1;
 	private int ticketQuantity = 1;
 	private int numberOfAdults = 1;
@@ -11,7 +22,18 @@ public class UserPreferences {
 	public UserPreferences() {
 	}
 	
+	/**
+	 * @param attractionProximity the distance in miles within which the user is rewarded for an
+	 *        attraction, or {@link #NO_ATTRACTION_PROXIMITY}
+	 * @throws IllegalArgumentException if the distance is not between 1 and
+	 *         {@link #MAX_ATTRACTION_PROXIMITY}
+	 */
 	public void setAttractionProximity(int attractionProximity) {
+		if (attractionProximity != NO_ATTRACTION_PROXIMITY
+				&& (attractionProximity < 1 || attractionProximity > MAX_ATTRACTION_PROXIMITY)) {
+			throw new IllegalArgumentException("Attraction proximity must be between 1 and "
+					+ MAX_ATTRACTION_PROXIMITY + " miles, was " + attractionProximity);
+		}
 		this.attractionProximity = attractionProximity;
 	}
 	
@@ -0,0 +1,75 @@
+package com.openclassrooms.tourguide.user;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Compact storage of a user's rewards.
+ * <p>
+ * Each reward is kept as three ints in parallel primitive arrays: the ordinal of the
+ * attraction in the catalog, the index of the rewarded location in the user's history
+ * and the reward points. A bitset indexed by attraction ordinal answers the
+ * "already rewarded" check in constant time. Arrays are only allocated once the first
+ * reward is added, so users without rewards cost a handful of bytes.
+ * </p>
+ */
+public class UserRewardStore {
+	/**
+	 * The location index of a reward whose location is no longer part of the history.
+	 */
+	public static final int NO_LOCATION = -1;
+	private static final int INITIAL_CAPACITY = 4;
+
+	private int[] attractionOrdinals;
+	private int[] locationIndexes;
+	private int[] rewardPoints;
+	private final BitSet rewardedAttractions = new BitSet();
+	private int size;
+
+	public void add(int attractionOrdinal, int locationIndex, int points) {
+		if (attractionOrdinals == null) {
+			attractionOrdinals = new int[INITIAL_CAPACITY];
+			locationIndexes = new int[INITIAL_CAPACITY];
+			rewardPoints = new int[INITIAL_CAPACITY];
+		} else if (size == attractionOrdinals.length) {
+			int capacity = size * 2;
+			attractionOrdinals = Arrays.copyOf(attractionOrdinals, capacity);
+			locationIndexes = Arrays.copyOf(locationIndexes, capacity);
+			rewardPoints = Arrays.copyOf(rewardPoints, capacity);
+		}
+		attractionOrdinals[size] = attractionOrdinal;
+		locationIndexes[size] = locationIndex;
+		rewardPoints[size] = points;
+		rewardedAttractions.set(attractionOrdinal);
+		size++;
+	}
+
+	/**
+	 * Marks every reward as {@link #NO_LOCATION}, once the history they index has been cleared.
+	 */
+	public void detachLocations() {
+		if (locationIndexes != null) {
+			Arrays.fill(locationIndexes, 0, size, NO_LOCATION);
+		}
+	}
+
+	public boolean contains(int attractionOrdinal) {
+		return rewardedAttractions.get(attractionOrdinal);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int attractionOrdinal(int i) {
+		return attractionOrdinals[i];
+	}
+
+	public int locationIndex(int i) {
+		return locationIndexes[i];
+	}
+
+	public int rewardPoints(int i) {
+		return rewardPoints[i];
+	}
+}
@@ -0,0 +1,169 @@
+package com.openclassrooms.tourguide.warmup;
+
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import com.openclassrooms.tourguide.client.LatencyProfile;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
+import com.openclassrooms.tourguide.dto.NearbyAttractionDto;
+import com.openclassrooms.tourguide.dto.NearbyUserDto;
+import com.openclassrooms.tourguide.geo.AttractionIndex;
+import com.openclassrooms.tourguide.service.AttractionsService;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+/**
+ * Runs the hot paths of the application on synthetic users, so that the JIT compiler has
+ * compiled them before the first real request.
+ * <p>
+ * The warm-up drives a {@link TourGuideService} of its own, without internal users, over
+ * stand-ins of the dependencies without latency: GpsUtil returns locations scattered around
+ * random attractions, RewardCentral and TripPricer are simulated. Each round registers
+ * {@code users} users and tracks their locations as the Tracker does, then asks the service
+ * for each user's location, nearby attractions, rewards and the users around the nearest
+ * attraction, serializing the results with every given mapper. The warm-up thus compiles the
+ * code serving the requests, but neither calls the dependencies nor touches the application's
+ * users.
+ * </p>
+ * <p>
+ * The compilations are counted from the {@code jdk.Compilation} events of a Flight Recorder
+ * recording held during the warm-up.
+ * </p>
+ */
+public class WarmUp {
+	static final String COMPILATION_EVENT = "jdk.Compilation";
+	private static final int LOCATIONS_PER_USER = 8;
+	private static final double SCATTER_DEGREES = 0.2;
+	private static final double NEARBY_USERS_MILES = 50;
+	private static final int NEARBY_USERS_LIMIT = 20;
+	private final AttractionIndex attractionIndex = AttractionsService.attractionIndex;
+	private final List<ObjectMapper> mappers;
+	private final int users;
+	private final int rounds;
+
+	/**
+	 * @param mappers the mappers responses are serialized with
+	 * @param users the number of synthetic users per round
+	 * @param rounds the number of rounds
+	 */
+	public WarmUp(List<ObjectMapper> mappers, int users, int rounds) {
+		this.mappers = mappers;
+		this.users = users;
+		this.rounds = rounds;
+	}
+
+	/**
+	 * Runs the rounds on the calling thread, rewards being calculated on the reward executor
+	 * of the warm-up, which is stopped afterwards with its service.
+	 *
+	 * @return the duration of the warm-up and the compilations that happened meanwhile
+	 */
+	public WarmUpReport run() throws IOException {
+		CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+		long compilationMillis = compilationMillis(compiler);
+		long start = System.nanoTime();
+		long serializedBytes;
+		long compilations;
+
+		Path dump = Files.createTempFile("tourguide-warm-up", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(COMPILATION_EVENT).withThreshold(Duration.ZERO);
+			recording.start();
+			serializedBytes = exercise();
+			recording.stop();
+			recording.dump(dump);
+			compilations = countCompilations(dump);
+		} finally {
+			Files.deleteIfExists(dump);
+		}
+
+		return new WarmUpReport((long) users * rounds, serializedBytes, System.nanoTime() - start, compilations,
+				compilationMillis < 0 ? -1 : compilationMillis(compiler) - compilationMillis);
+	}
+
+	private long exercise() throws JsonProcessingException {
+		long serializedBytes = 0;
+		try (RewardsService rewardsService = new RewardsService(
+				new SimulatedRewardCentralClient(42, LatencyProfile.none(), 0));
+				TourGuideService tourGuideService = new TourGuideService(this::randomLocation, rewardsService,
+						new SimulatedTripPricerClient(42, LatencyProfile.none(), 0), false)) {
+			tourGuideService.tracker.stopTracking();
+
+			for (int round = 0; round < rounds; round++) {
+				List<User> roundUsers = new ArrayList<>(users);
+				for (int i = 0; i < users; i++) {
+					String userName = "warmUp" + round + "-" + i;
+					User user = new User(UUID.randomUUID(), userName, "000", userName + "@tourGuide.com");
+					tourGuideService.addUser(user);
+					roundUsers.add(user);
+				}
+				for (int j = 0; j < LOCATIONS_PER_USER; j++) {
+					tourGuideService.trackUsersLocations(roundUsers);
+				}
+
+				for (User user : roundUsers) {
+					VisitedLocation visitedLocation = tourGuideService.getUserLocation(user);
+					tourGuideService.refreshNearbyAttractions(user, visitedLocation.location).join();
+					List<NearbyAttractionDto> attractions = tourGuideService.getNearByAttractionsInfo(user);
+					List<UserReward> rewards = tourGuideService.getUserRewards(user);
+					List<NearbyUserDto> nearbyUsers = tourGuideService.getNearbyUsers(attractions.get(0).attractionName(),
+							NEARBY_USERS_MILES, NEARBY_USERS_LIMIT);
+					for (ObjectMapper mapper : mappers) {
+						serializedBytes += mapper.writeValueAsBytes(visitedLocation).length;
+						serializedBytes += mapper.writeValueAsBytes(attractions).length;
+						serializedBytes += mapper.writeValueAsBytes(rewards).length;
+						serializedBytes += mapper.writeValueAsBytes(nearbyUsers).length;
+					}
+				}
+			}
+		}
+		return serializedBytes;
+	}
+
+	/**
+	 * Stands in for GpsUtil, returning a location scattered around a random attraction so that
+	 * the reward paths are exercised.
+	 */
+	private VisitedLocation randomLocation(UUID userId) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int ordinal = random.nextInt(attractionIndex.size());
+		double latitude = attractionIndex.latitude(ordinal) + random.nextDouble(-SCATTER_DEGREES, SCATTER_DEGREES);
+		double longitude = attractionIndex.longitude(ordinal) + random.nextDouble(-SCATTER_DEGREES, SCATTER_DEGREES);
+		return new VisitedLocation(userId, new Location(latitude, longitude), new Date());
+	}
+
+	private static long countCompilations(Path dump) throws IOException {
+		long compilations = 0;
+		try (RecordingFile recordingFile = new RecordingFile(dump)) {
+			while (recordingFile.hasMoreEvents()) {
+				if (recordingFile.readEvent().getEventType().getName().equals(COMPILATION_EVENT)) {
+					compilations++;
+				}
+			}
+		}
+		return compilations;
+	}
+
+	private static long compilationMillis(CompilationMXBean compiler) {
+		return compiler != null && compiler.isCompilationTimeMonitoringSupported() ? compiler.getTotalCompilationTime() : -1;
+	}
+}
@@ -0,0 +1,25 @@
+package com.openclassrooms.tourguide.warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a {@link WarmUp}.
+ *
+ * @param users the number of synthetic users exercised
+ * @param serializedBytes the size of the responses serialized
+ * @param elapsedNanos wall-clock duration of the warm-up
+ * @param compilations the number of methods compiled by the JIT compiler meanwhile
+ * @param compilationMillis time spent by the JIT compiler meanwhile, or -1 if the JVM does not measure it
+ */
+public record WarmUpReport(long users,
+						   long serializedBytes,
+						   long elapsedNanos,
+						   long compilations,
+						   long compilationMillis) {
+
+	@Override
+	public String toString() {
+		return String.format("%d synthetic users in %d ms, %d compilations taking %d ms, %d bytes serialized", users,
+				TimeUnit.NANOSECONDS.toMillis(elapsedNanos), compilations, compilationMillis, serializedBytes);
+	}
+}
@@ -0,0 +1,54 @@
+package com.openclassrooms.tourguide.warmup;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Warms the JIT compiler up before the application reports ready.
+ * <p>
+ * Spring Boot only switches the readiness state, exposed by the actuator at
+ * {@code /actuator/health/readiness}, to accepting traffic once every runner has completed:
+ * running the {@link WarmUp} first keeps new instances out of rotation until the distance,
+ * nearest-attraction, reward and serialization paths are compiled. The warm-up exercises
+ * {@code tourguide.warm-up.users} synthetic users per round over {@code tourguide.warm-up.rounds}
+ * rounds; setting {@code tourguide.warm-up.enabled=false} skips it.
+ * </p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "tourguide.warm-up.enabled", havingValue = "true", matchIfMissing = true)
+public class WarmUpRunner implements ApplicationRunner {
+	private final Logger logger = LoggerFactory.getLogger(WarmUpRunner.class);
+	private final ObjectMapper objectMapper;
+	private final MappingJackson2CborHttpMessageConverter cborConverter;
+
+	@Value("${tourguide.warm-up.users:100}")
+	private int users;
+
+	@Value("${tourguide.warm-up.rounds:20}")
+	private int rounds;
+
+	public WarmUpRunner(ObjectMapper objectMapper, MappingJackson2CborHttpMessageConverter cborConverter) {
+		this.objectMapper = objectMapper;
+		this.cborConverter = cborConverter;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		logger.info("Warming up with {} synthetic users over {} rounds", users, rounds);
+		WarmUpReport report = new WarmUp(List.of(objectMapper, cborConverter.getObjectMapper()), users, rounds).run();
+		logger.info("Warm-up completed: {}", report);
+	}
+}
@@ -1,14 +1,41 @@
 package com.openclassrooms.tourguide.IT;
 
+import com.openclassrooms.tourguide.service.AttractionsService;
 import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.warmup.WarmUpRunner;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -21,6 +48,24 @@ public class TestTourGuideController {
     @Autowired
     private TourGuideService service;
 
+    @Autowired
+    private Optional<WarmUpRunner> warmUpRunner;
+
+    /**
+     * Records the readiness state right after the {@link WarmUpRunner}, before Spring Boot
+     * reports the application ready.
+     */
+    @TestConfiguration
+    static class ReadinessProbe {
+        static volatile ReadinessState readinessAfterWarmUp;
+
+        @Bean
+        @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+        ApplicationRunner readinessAfterWarmUpRecorder(ApplicationAvailability availability) {
+            return args -> readinessAfterWarmUp = availability.getReadinessState();
+        }
+    }
+
     @Test
     void testGetNearbyAttractionsInfo_shouldReturnDto() throws Exception {
         String username = service.getAllUsers().get(0).getUserName();
@@ -55,7 +100,8 @@ public class TestTourGuideController {
                 .andExpectAll(
                         jsonPath("$.userId").isNotEmpty(),
                         jsonPath("$.location.longitude").isNumber(),
-                        jsonPath("$.location.latitude").isNumber()
+                        jsonPath("$.location.latitude").isNumber(),
+                        jsonPath("$.timeVisited").isString()
                 );
     }
 
@@ -80,4 +126,167 @@ public class TestTourGuideController {
                         jsonPath("$").isArray()
                 );
     }
+
+    @Test
+    void testGetLeaderboard() throws Exception {
+        mockMvc.perform(get("/leaderboard?top=3"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$").isArray()
+                );
+        mockMvc.perform(get("/leaderboard?top=-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/leaderboard?top=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetAttractionTraffic() throws Exception {
+        mockMvc.perform(get("/getAttractionTraffic"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$").isArray(),
+                        jsonPath("$.[0].attractionName").isString(),
+                        jsonPath("$.[0].visits").isNumber(),
+                        jsonPath("$.[0].rewardsGranted").isNumber(),
+                        jsonPath("$.[0].rewardPointsGranted").isNumber()
+                );
+    }
+
+    @Test
+    void testGetRewardsIsCachedUntilUserChanges() throws Exception {
+        User user = new User(UUID.randomUUID(), "etagUser", "000", "etagUser@tourGuide.com");
+        user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(0, 0), new Date()));
+        service.addUser(user);
+
+        String eTag = mockMvc.perform(get("/getRewards?userName=etagUser"))
+                .andExpectAll(
+                        status().isOk(),
+                        header().exists("ETag"),
+                        jsonPath("$").isArray()
+                )
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/getRewards?userName=etagUser").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(1, 1), new Date()));
+
+        mockMvc.perform(get("/getRewards?userName=etagUser").header("If-None-Match", eTag))
+                .andExpectAll(
+                        status().isOk(),
+                        header().string("ETag", not(eTag))
+                );
+    }
+
+    @Test
+    void testGetRewardsAsCbor() throws Exception {
+        String username = service.getAllUsers().get(0).getUserName();
+
+        mockMvc.perform(get("/getRewards?userName=" + username).accept(MediaType.APPLICATION_CBOR))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_CBOR)
+                );
+    }
+
+    @Test
+    void testBurstOfRequestsGetsStaleResponseOrTooManyRequests() throws Exception {
+        User user = new User(UUID.randomUUID(), "burstUser", "000", "burstUser@tourGuide.com");
+        user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(0, 0), new Date()));
+        service.addUser(user);
+
+        // the user's bucket holds 20 tokens, and refills while the requests run
+        MvcResult stale = null;
+        for (int i = 0; i < 100 && stale == null; i++) {
+            MvcResult result = mockMvc.perform(get("/getLocation?userName=burstUser"))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            if (result.getResponse().getHeader("Warning") != null) {
+                stale = result;
+            }
+        }
+        assertNotNull(stale);
+        assertTrue(stale.getResponse().getContentAsString().contains(user.getUserId().toString()));
+
+        int status = HttpStatus.OK.value();
+        for (int i = 0; i < 100 && status == HttpStatus.OK.value(); i++) {
+            MvcResult result = mockMvc.perform(get("/getTripDeals?userName=burstUser")).andReturn();
+            status = result.getResponse().getStatus();
+            if (status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                assertNotNull(result.getResponse().getHeader("Retry-After"));
+            }
+        }
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), status);
+    }
+
+    @Test
+    void testGetLocationHistoryReturnsTheTimeWindow() throws Exception {
+        User user = new User(UUID.randomUUID(), "historyUser", "000", "historyUser@tourGuide.com");
+        for (int day = 1; day <= 3; day++) {
+            user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(day, day),
+                    Date.from(Instant.parse("2024-01-0" + day + "T12:00:00Z"))));
+        }
+        service.addUser(user);
+
+        mockMvc.perform(get("/getLocationHistory?userName=historyUser&from=2024-01-02T00:00:00Z&to=2024-01-03T23:00:00Z&limit=1"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(1),
+                        jsonPath("$.[0].location.latitude").value(2.0),
+                        jsonPath("$.[0].timeVisited").value("2024-01-02T12:00:00.000+00:00")
+                );
+        mockMvc.perform(get("/getLocationHistory?userName=historyUser"))
+                .andExpect(jsonPath("$.length()").value(3));
+        mockMvc.perform(get("/getLocationHistory?userName=historyUser&limit=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetNearbyUsersOfAnAttraction() throws Exception {
+        Attraction attraction = AttractionsService.allAttractions.get(0);
+        User user = new User(UUID.randomUUID(), "nearbyUser", "000", "nearbyUser@tourGuide.com");
+        service.addUser(user);
+        service.recordUserLocation(user, new VisitedLocation(user.getUserId(),
+                new Location(attraction.latitude, attraction.longitude), new Date()));
+
+        mockMvc.perform(get("/attractions/" + attraction.attractionName + "/nearbyUsers?radius=1&limit=1000"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[?(@.userName == 'nearbyUser')].distance").value(0.0)
+                );
+        mockMvc.perform(get("/attractions/unknown/nearbyUsers?radius=1"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testReadinessIsRefusedWhileWarmingUp() {
+        assertTrue(warmUpRunner.isPresent());
+        assertEquals(ReadinessState.REFUSING_TRAFFIC, ReadinessProbe.readinessAfterWarmUp);
+    }
+
+    @Test
+    void testReadinessIsUpOnceWarmedUp() throws Exception {
+        mockMvc.perform(get("/actuator/health/readiness"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.status").value("UP")
+                );
+    }
+
+    @Test
+    void testGetAttractionsWithinRange() throws Exception {
+        Attraction attraction = AttractionsService.allAttractions.get(0);
+        User user = new User(UUID.randomUUID(), "rangeUser", "000", "rangeUser@tourGuide.com");
+        user.addToVisitedLocations(new VisitedLocation(user.getUserId(),
+                new Location(attraction.latitude, attraction.longitude), new Date()));
+        service.addUser(user);
+
+        mockMvc.perform(get("/getAttractionsWithinRange?userName=rangeUser"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[0].attractionName").value(attraction.attractionName),
+                        jsonPath("$[0].distance").value(0.0)
+                );
+    }
 }
@@ -0,0 +1,117 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.openclassrooms.tourguide.admission.AdmissionControl;
+import com.openclassrooms.tourguide.admission.AdmissionInterceptor;
+import com.openclassrooms.tourguide.admission.TokenBucket;
+
+public class TestAdmissionControl {
+
+	@Test
+	public void tokenBucketRefillsAtItsRate() {
+		AtomicLong now = new AtomicLong();
+		TokenBucket bucket = new TokenBucket(2, 2, now::get);
+
+		assertTrue(bucket.tryConsume());
+		assertTrue(bucket.tryConsume());
+		assertFalse(bucket.tryConsume());
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(500), bucket.nanosUntilAvailable());
+
+		now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+		assertTrue(bucket.tryConsume());
+		assertFalse(bucket.tryConsume());
+
+		now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		assertTrue(bucket.tryConsume());
+		assertTrue(bucket.tryConsume());
+		assertFalse(bucket.tryConsume());
+	}
+
+	@Test
+	public void usersAreLimitedSeparately() {
+		AdmissionControl admissionControl = new AdmissionControl(Map.of("/getTripDeals", new TokenBucket(1000, 1000)),
+				1, 2, 100, 100, 0, () -> false);
+
+		assertTrue(admit(admissionControl, "jon"));
+		assertTrue(admit(admissionControl, "jon"));
+		AdmissionControl.Admission rejected = admissionControl.tryAdmit("/getTripDeals", "jon");
+		assertFalse(rejected.admitted());
+		assertEquals(1, rejected.retryAfterSeconds());
+		assertTrue(admit(admissionControl, "jane"));
+		assertEquals(0, admissionControl.getInFlight());
+	}
+
+	@Test
+	public void capacityIsReservedForTheTracker() {
+		AtomicBoolean tracking = new AtomicBoolean(true);
+		AdmissionControl admissionControl = new AdmissionControl(Map.of("/getLocation", new TokenBucket(1000, 1000)),
+				1000, 1000, 100, 4, 3, tracking::get);
+
+		assertTrue(admissionControl.tryAdmit("/getLocation", null).admitted());
+		assertFalse(admissionControl.tryAdmit("/getLocation", null).admitted());
+
+		tracking.set(false);
+		assertTrue(admissionControl.tryAdmit("/getLocation", null).admitted());
+		assertTrue(admissionControl.tryAdmit("/getLocation", null).admitted());
+		assertTrue(admissionControl.tryAdmit("/getLocation", null).admitted());
+		assertFalse(admissionControl.tryAdmit("/getLocation", null).admitted());
+		assertEquals(4, admissionControl.getInFlight());
+	}
+
+	@Test
+	public void userBucketsAreBounded() throws InterruptedException {
+		AdmissionControl admissionControl = new AdmissionControl(Map.of("/getTripDeals", new TokenBucket(1000, 1000)),
+				10, 1, 2, 100, 0, () -> false);
+
+		assertTrue(admit(admissionControl, "jon"));
+		assertTrue(admit(admissionControl, "jane"));
+		AdmissionControl.Admission rejected = admissionControl.tryAdmit("/getTripDeals", "bob");
+		assertFalse(rejected.admitted());
+		assertEquals(2, admissionControl.getUserBucketCount());
+		assertEquals(0, admissionControl.getInFlight());
+
+		// the idle buckets refill within 100ms, and are evicted once the eviction interval has passed
+		Thread.sleep(1100);
+		assertTrue(admit(admissionControl, "bob"));
+		assertEquals(1, admissionControl.getUserBucketCount());
+	}
+
+	@Test
+	public void endpointsAreMatchedUnderAContextPath() throws Exception {
+		AdmissionControl admissionControl = new AdmissionControl(Map.of("/getTripDeals", new TokenBucket(0.001, 1)),
+				1000, 1000, 100, 100, 0, () -> false);
+		AdmissionInterceptor interceptor = new AdmissionInterceptor(admissionControl, null, null);
+
+		assertTrue(interceptor.preHandle(request("/tourguide", "/tourguide/getTripDeals"), new MockHttpServletResponse(), null));
+		MockHttpServletResponse rejected = new MockHttpServletResponse();
+		assertFalse(interceptor.preHandle(request("/tourguide", "/tourguide/getTripDeals"), rejected, null));
+		assertEquals(429, rejected.getStatus());
+		assertTrue(interceptor.preHandle(request("/tourguide", "/tourguide/getLocation"), new MockHttpServletResponse(), null));
+	}
+
+	private static MockHttpServletRequest request(String contextPath, String requestUri) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", requestUri);
+		request.setContextPath(contextPath);
+		return request;
+	}
+
+	private static boolean admit(AdmissionControl admissionControl, String userName) {
+		boolean admitted = admissionControl.tryAdmit("/getTripDeals", userName).admitted();
+		if (admitted) {
+			admissionControl.release();
+		}
+		return admitted;
+	}
+}
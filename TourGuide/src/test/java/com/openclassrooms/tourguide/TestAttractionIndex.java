@@ -0,0 +1,130 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import gpsUtil.location.Attraction;
+import com.openclassrooms.tourguide.geo.AttractionIndex;
+import com.openclassrooms.tourguide.geo.GeoGrid;
+import com.openclassrooms.tourguide.geo.NearestAttractions;
+import com.openclassrooms.tourguide.geo.ProximityCells;
+import com.openclassrooms.tourguide.service.AttractionsService;
+
+public class TestAttractionIndex {
+
+	private final List<Attraction> allAttractions = AttractionsService.allAttractions;
+	private final AttractionIndex attractionIndex = new AttractionIndex(allAttractions);
+
+	@Test
+	public void forEachWithinMatchesFullScan() {
+		Random random = new Random(42);
+		int[] radiuses = {1, 10, 200, 2000, 10000, Integer.MAX_VALUE};
+
+		for (int i = 0; i < 500; i++) {
+			double latitude = -85 + random.nextDouble() * 170;
+			double longitude = -180 + random.nextDouble() * 360;
+			for (int radius : radiuses) {
+				Set<Integer> expected = IntStream.range(0, allAttractions.size())
+						.filter(ordinal -> distanceTo(ordinal, latitude, longitude) <= radius)
+						.boxed()
+						.collect(Collectors.toCollection(TreeSet::new));
+
+				Set<Integer> actual = new TreeSet<>();
+				attractionIndex.forEachWithin(latitude, longitude, radius, actual::add);
+
+				assertEquals(expected, actual);
+			}
+		}
+	}
+
+	@Test
+	public void forEachWithinFindsAttractionAtItsOwnLocation() {
+		for (int ordinal = 0; ordinal < allAttractions.size(); ordinal++) {
+			Attraction attraction = allAttractions.get(ordinal);
+			Set<Integer> actual = new TreeSet<>();
+			attractionIndex.forEachWithin(attraction.latitude, attraction.longitude, 10, actual::add);
+
+			assertTrue(actual.contains(ordinal));
+		}
+	}
+
+	@Test
+	public void proximityCellsContainEveryAttractionWithinRadius() {
+		Random random = new Random(7);
+		ProximityCells proximityCells = new ProximityCells(attractionIndex, 200);
+
+		for (int i = 0; i < 2000; i++) {
+			double latitude = 20 + random.nextDouble() * 40;
+			double longitude = -130 + random.nextDouble() * 60;
+			Set<Integer> candidates = new TreeSet<>();
+			for (int ordinal : proximityCells.candidates(GeoGrid.cellOf(latitude, longitude))) {
+				candidates.add(ordinal);
+			}
+
+			attractionIndex.forEachWithin(latitude, longitude, 200,
+					ordinal -> assertTrue(candidates.contains(ordinal)));
+		}
+	}
+
+	@Test
+	public void nearestAttractionsMatchSortedScan() {
+		Random random = new Random(11);
+		NearestAttractions nearest = new NearestAttractions(5);
+
+		for (int i = 0; i < 500; i++) {
+			double latitude = -85 + random.nextDouble() * 170;
+			double longitude = -180 + random.nextDouble() * 360;
+			List<Double> expected = IntStream.range(0, allAttractions.size())
+					.mapToDouble(ordinal -> distanceTo(ordinal, latitude, longitude))
+					.sorted()
+					.limit(5)
+					.boxed()
+					.toList();
+
+			assertEquals(5, nearest.select(attractionIndex, latitude, longitude));
+			for (int rank = 0; rank < 5; rank++) {
+				assertEquals(expected.get(rank), nearest.distance(rank));
+				assertEquals(expected.get(rank), distanceTo(nearest.ordinal(rank), latitude, longitude));
+			}
+		}
+	}
+
+	@Test
+	public void nearestAttractionsSelectionDoesNotAllocate() {
+		ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		NearestAttractions nearest = new NearestAttractions(5);
+		double checksum = 0;
+		for (int i = 0; i < 20_000; i++) {
+			nearest.select(attractionIndex, i % 170 - 85, i % 360 - 180);
+			checksum += nearest.distance(0);
+		}
+
+		int queries = 10_000;
+		long before = threadMXBean.getCurrentThreadAllocatedBytes();
+		for (int i = 0; i < queries; i++) {
+			nearest.select(attractionIndex, i % 170 - 85, i % 360 - 180);
+			checksum += nearest.distance(0);
+		}
+		long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - before;
+
+		assertTrue(checksum > 0);
+		assertTrue(allocated < queries, allocated + " bytes allocated by " + queries + " queries");
+	}
+
+	private double distanceTo(int ordinal, double latitude, double longitude) {
+		Attraction attraction = allAttractions.get(ordinal);
+		return GeoGrid.distance(latitude, longitude, attraction.latitude, attraction.longitude);
+	}
+}
@@ -0,0 +1,104 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import com.openclassrooms.tourguide.client.LatencyProfile;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.monitoring.RewardCalculationEvent;
+import com.openclassrooms.tourguide.service.AttractionsService;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+
+public class TestFlightRecorderEvents {
+
+	@Test
+	public void trackUserLocationIsRecorded(@TempDir Path directory) throws Exception {
+		RewardsService rewardsService = new RewardsService(new SimulatedRewardCentralClient(1, LatencyProfile.none(), 0));
+		rewardsService.setProximityBuffer(Integer.MAX_VALUE);
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(new SimulatedGpsUtilClient(1, LatencyProfile.none(), 0),
+				rewardsService, new SimulatedTripPricerClient(1, LatencyProfile.none(), 0));
+		tourGuideService.tracker.stopTracking();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+
+		Path dump = directory.resolve("recording.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("com.openclassrooms.tourguide.TrackUserLocation");
+			recording.enable("com.openclassrooms.tourguide.RewardCalculation");
+			recording.enable("com.openclassrooms.tourguide.ExternalCall");
+			recording.start();
+			tourGuideService.trackUserLocation(user);
+			recording.stop();
+			recording.dump(dump);
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+		RecordedEvent tracking = single(events, "com.openclassrooms.tourguide.TrackUserLocation");
+		assertEquals("jon", tracking.getString("userName"));
+		assertTrue(tracking.getDuration("gpsUtilWait").toNanos() > 0);
+
+		RecordedEvent calculation = single(events, "com.openclassrooms.tourguide.RewardCalculation");
+		assertEquals(RewardCalculationEvent.INCREMENTAL, calculation.getString("mode"));
+		assertEquals(1, calculation.getInt("locationsScanned"));
+		assertEquals(AttractionsService.allAttractions.size(), calculation.getInt("attractionsTested"));
+		assertEquals(AttractionsService.allAttractions.size(), calculation.getInt("rewardsGranted"));
+
+		long rewardCentralCalls = events.stream()
+				.filter(event -> event.getEventType().getName().equals("com.openclassrooms.tourguide.ExternalCall"))
+				.filter(event -> event.getString("dependency").equals("RewardCentral"))
+				.count();
+		assertEquals(AttractionsService.allAttractions.size(), rewardCentralCalls);
+		tourGuideService.close();
+	}
+
+	@Test
+	public void failedRewardCalculationIsRecorded(@TempDir Path directory) throws Exception {
+		Attraction attraction = AttractionsService.allAttractions.get(0);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+
+		Path dump = directory.resolve("recording.jfr");
+		try (RewardsService rewardsService = new RewardsService(
+				new SimulatedRewardCentralClient(1, LatencyProfile.none(), 1));
+				Recording recording = new Recording()) {
+			recording.enable("com.openclassrooms.tourguide.RewardCalculation");
+			recording.start();
+			assertThrows(CompletionException.class, () -> rewardsService.calculateRewards(user).join());
+			recording.stop();
+			recording.dump(dump);
+		}
+
+		RecordedEvent calculation = single(RecordingFile.readAllEvents(dump), "com.openclassrooms.tourguide.RewardCalculation");
+		assertEquals(RewardCalculationEvent.FULL, calculation.getString("mode"));
+		assertEquals(1, calculation.getInt("attractionsTested"));
+		assertEquals(0, calculation.getInt("rewardsGranted"));
+	}
+
+	private static RecordedEvent single(List<RecordedEvent> events, String name) {
+		List<RecordedEvent> matching = events.stream()
+				.filter(event -> event.getEventType().getName().equals(name))
+				.toList();
+		assertEquals(1, matching.size(), name);
+		return matching.get(0);
+	}
+}
@@ -0,0 +1,90 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.dto.NearbyAttractionDto;
+import com.openclassrooms.tourguide.json.TourGuideJsonModule;
+import com.openclassrooms.tourguide.service.AttractionsService;
+import com.openclassrooms.tourguide.user.UserReward;
+
+public class TestJsonSerialization {
+
+	private final ObjectMapper jsonMapper = new ObjectMapper().registerModule(new TourGuideJsonModule());
+	private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory()).registerModule(new TourGuideJsonModule());
+
+	@Test
+	public void responsesKeepTheBeanSerializationShape() throws Exception {
+		ObjectMapper beanMapper = new ObjectMapper();
+		Attraction attraction = AttractionsService.allAttractions.get(0);
+		VisitedLocation visitedLocation = new VisitedLocation(UUID.randomUUID(),
+				new Location(33.81759512345, -117.92200849876), new Date(1700000000123L));
+		List<Object> responses = List.of(visitedLocation, attraction,
+				new UserReward(visitedLocation, attraction, 42),
+				new NearbyAttractionDto(attraction.attractionName, attraction, visitedLocation.location, 12.5, 300));
+
+		for (Object response : responses) {
+			assertEquals(beanMapper.readTree(beanMapper.writeValueAsString(response)),
+					jsonMapper.readTree(jsonMapper.writeValueAsString(response)));
+		}
+	}
+
+	@Test
+	public void visitTimesFollowTheMapperDateSettings() throws Exception {
+		ObjectMapper isoMapper = new ObjectMapper().registerModule(new TourGuideJsonModule())
+				.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+		VisitedLocation visitedLocation = new VisitedLocation(UUID.randomUUID(), new Location(1, 2),
+				new Date(1700000000123L));
+
+		assertEquals("2023-11-14T22:13:20.123+00:00",
+				isoMapper.readTree(isoMapper.writeValueAsString(visitedLocation)).get("timeVisited").asText());
+	}
+
+	@Test
+	public void responsesKeepTheirPropertyNames() throws Exception {
+		Attraction attraction = AttractionsService.allAttractions.get(0);
+		VisitedLocation visitedLocation = new VisitedLocation(UUID.randomUUID(), new Location(1, 2), new Date());
+		NearbyAttractionDto dto = new NearbyAttractionDto(attraction.attractionName, attraction, visitedLocation.location,
+				12.5, 300);
+
+		JsonNode nearby = jsonMapper.readTree(jsonMapper.writeValueAsBytes(dto));
+		assertEquals(attraction.attractionName, nearby.get("attractionName").asText());
+		assertEquals(attraction.latitude, nearby.get("attractionLocation").get("latitude").asDouble(), 1e-6);
+		assertEquals(2, nearby.get("userLocation").size());
+		assertEquals(300, nearby.get("rewardPoints").asInt());
+
+		JsonNode rewards = jsonMapper.readTree(jsonMapper.writeValueAsBytes(List.of(
+				new UserReward(visitedLocation, attraction, 42), new UserReward(null, attraction, 7))));
+		assertEquals(attraction.attractionId.toString(), rewards.get(0).get("attraction").get("attractionId").asText());
+		assertTrue(rewards.get(0).get("visitedLocation").has("timeVisited"));
+		assertTrue(rewards.get(1).get("visitedLocation").isNull());
+		assertEquals(7, rewards.get(1).get("rewardPoints").asInt());
+	}
+
+	@Test
+	public void cborCarriesTheSameContentInFewerBytes() throws Exception {
+		List<UserReward> rewards = AttractionsService.allAttractions.stream()
+				.map(attraction -> new UserReward(new VisitedLocation(UUID.randomUUID(), attraction, new Date()), attraction, 100))
+				.toList();
+
+		byte[] json = jsonMapper.writeValueAsBytes(rewards);
+		byte[] cbor = cborMapper.writeValueAsBytes(rewards);
+
+		assertEquals(jsonMapper.readTree(json), cborMapper.readTree(cbor));
+		assertTrue(cbor.length < json.length);
+	}
+}
@@ -0,0 +1,68 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.dto.NearbyUserDto;
+import com.openclassrooms.tourguide.geo.GeoGrid;
+import com.openclassrooms.tourguide.service.LatestPositions;
+import com.openclassrooms.tourguide.user.User;
+
+public class TestLatestPositions {
+
+	@Test
+	public void findsTheSameUsersAsAScan() {
+		Random random = new Random(42);
+		LatestPositions positions = new LatestPositions();
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			User user = new User(UUID.randomUUID(), "user" + i, "000", "user" + i + "@tourGuide.com");
+			users.add(user);
+			// two moves per user, the second one replacing the first
+			for (int move = 0; move < 2; move++) {
+				positions.record(user, new VisitedLocation(user.getUserId(),
+						new Location(33 + random.nextDouble() * 4, -119 + random.nextDouble() * 4), new Date(move)));
+			}
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(),
+					new Location(33 + random.nextDouble() * 4, -119 + random.nextDouble() * 4), new Date(2)));
+			positions.record(user, user.getLastVisitedLocation());
+		}
+		assertEquals(5000, positions.size());
+
+		double latitude = 35;
+		double longitude = -117;
+		long expected = users.stream()
+				.map(User::getLastVisitedLocation)
+				.filter(location -> GeoGrid.distance(latitude, longitude, location.location.latitude,
+						location.location.longitude) <= 50)
+				.count();
+
+		List<NearbyUserDto> nearbyUsers = positions.within(latitude, longitude, 50, Integer.MAX_VALUE);
+		assertEquals(expected, nearbyUsers.size());
+		for (int i = 1; i < nearbyUsers.size(); i++) {
+			assertTrue(nearbyUsers.get(i - 1).distance() <= nearbyUsers.get(i).distance() + 1e-3);
+		}
+		assertEquals(10, positions.within(latitude, longitude, 50, 10).size());
+	}
+
+	@Test
+	public void olderPositionIsIgnored() {
+		LatestPositions positions = new LatestPositions();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		positions.record(user, new VisitedLocation(user.getUserId(), new Location(10, 10), new Date(2000)));
+		positions.record(user, new VisitedLocation(user.getUserId(), new Location(-10, -10), new Date(1000)));
+
+		assertEquals(1, positions.within(10, 10, 1, 10).size());
+		assertTrue(positions.within(-10, -10, 1, 10).isEmpty());
+	}
+}
@@ -0,0 +1,197 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.client.LatencyProfile;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.history.HistorySegments;
+import com.openclassrooms.tourguide.history.LocationHistory;
+import com.openclassrooms.tourguide.service.AttractionsService;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserReward;
+
+public class TestLocationHistory {
+
+	@Test
+	public void archivedLocationsAreDecodedOnRead(@TempDir Path directory) throws Exception {
+		UUID userId = UUID.randomUUID();
+		List<VisitedLocation> added = new ArrayList<>();
+		try (HistorySegments segments = new HistorySegments(directory, 1 << 20)) {
+			LocationHistory history = new LocationHistory(userId);
+			history.enableArchive(segments, 100);
+			for (int i = 0; i < 2000; i++) {
+				VisitedLocation visitedLocation = new VisitedLocation(userId,
+						new Location(48.8566 + i * 1e-4, 2.3522 - i * 2e-4), new Date(1_700_000_000_000L + i * 60_000L));
+				added.add(visitedLocation);
+				history.add(visitedLocation);
+			}
+
+			assertEquals(2000, history.size());
+			int onHeap = history.size() - history.getArchivedCount();
+			assertTrue(onHeap >= 100 && onHeap < 100 + LocationHistory.BLOCK_SIZE);
+			assertTrue(history.getArchivedBytes() < history.getArchivedCount() * 8L);
+			assertSame(added.get(1999), history.last());
+			assertEquals(1999, history.lastIndexOfInstance(added.get(1999)));
+
+			int i = 0;
+			for (VisitedLocation visitedLocation : history) {
+				assertSameLocation(added.get(i), visitedLocation);
+				assertSameLocation(added.get(i), history.get(i));
+				i++;
+			}
+			assertEquals(2000, i);
+			assertTrue(Files.list(directory).findAny().isPresent());
+		}
+		assertTrue(Files.list(directory).findAny().isEmpty());
+	}
+
+	@Test
+	public void clearedHistoriesReleaseTheirSegments(@TempDir Path directory) throws Exception {
+		UUID userId = UUID.randomUUID();
+		try (HistorySegments segments = new HistorySegments(directory, 8192)) {
+			LocationHistory history = new LocationHistory(userId);
+			LocationHistory other = new LocationHistory(userId);
+			history.enableArchive(segments, 0);
+			other.enableArchive(segments, 0);
+			for (int i = 0; i < 20 * LocationHistory.BLOCK_SIZE; i++) {
+				history.add(new VisitedLocation(userId, new Location(i * 1e-3, i * 1e-3), new Date(i * 60_000L)));
+			}
+			for (int i = 0; i < LocationHistory.BLOCK_SIZE; i++) {
+				other.add(new VisitedLocation(userId, new Location(i, i), new Date(i)));
+			}
+			assertTrue(segments.getSegmentCount() > 2);
+
+			history.clear();
+
+			assertEquals(other.getArchivedBytes(), segments.getLiveBytes());
+			assertEquals(1, segments.getSegmentCount());
+			assertEquals(1, Files.list(directory).count());
+
+			for (int i = 0; i < LocationHistory.BLOCK_SIZE; i++) {
+				history.add(new VisitedLocation(userId, new Location(i, -i), new Date(i)));
+			}
+			assertEquals(LocationHistory.BLOCK_SIZE, history.getArchivedCount());
+			assertEquals(-5, history.get(5).location.longitude, 1e-7);
+			assertEquals(5, other.get(5).location.longitude, 1e-7);
+		}
+	}
+
+	@Test
+	public void rewardsKeepTheirArchivedLocation(@TempDir Path directory) throws Exception {
+		try (HistorySegments segments = new HistorySegments(directory, 1 << 20)) {
+			User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+			user.enableHistoryArchive(segments, 0);
+			for (int i = 0; i < LocationHistory.BLOCK_SIZE; i++) {
+				user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(i, i), new Date(i)));
+			}
+			user.addUserReward(0, 10, 100);
+
+			assertEquals(LocationHistory.BLOCK_SIZE, user.getArchivedLocationCount());
+			UserReward reward = user.getUserRewards(AttractionsService.attractionIndex).get(0);
+			assertEquals(10, reward.visitedLocation.location.latitude, 1e-7);
+			assertEquals(10, reward.visitedLocation.timeVisited.getTime());
+		}
+	}
+
+	@Test
+	public void locationArchivedAsSoonAsAddedIsRewarded(@TempDir Path directory) throws Exception {
+		try (HistorySegments segments = new HistorySegments(directory, 1 << 20);
+				RewardsService rewardsService = new RewardsService(
+						new SimulatedRewardCentralClient(1, LatencyProfile.none(), 0))) {
+			User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+			user.enableHistoryArchive(segments, 0);
+			for (int i = 0; i < LocationHistory.BLOCK_SIZE - 1; i++) {
+				user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(i * 1e-3, 0), new Date(i)));
+			}
+			Attraction attraction = AttractionsService.attractionIndex.get(0);
+			VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), attraction, new Date());
+			user.addToVisitedLocations(visitedLocation);
+			assertEquals(LocationHistory.BLOCK_SIZE, user.getArchivedLocationCount());
+			assertEquals(LocationHistory.BLOCK_SIZE - 1, user.indexOfVisitedLocation(visitedLocation));
+			assertEquals(-1, user.indexOfVisitedLocation(
+					new VisitedLocation(user.getUserId(), new Location(1, 1), new Date())));
+
+			rewardsService.calculateRewards(user, visitedLocation).join();
+
+			assertEquals(LocationHistory.BLOCK_SIZE - 1, user.getUserRewardStore().locationIndex(0));
+		}
+	}
+
+	@Test
+	public void timeWindowIsFoundWhateverTheInsertionOrder(@TempDir Path directory) throws Exception {
+		UUID userId = UUID.randomUUID();
+		try (HistorySegments segments = new HistorySegments(directory, 1 << 20)) {
+			LocationHistory history = new LocationHistory(userId);
+			history.enableArchive(segments, 10);
+			// two interleaved passes: even minutes first, odd minutes afterwards
+			for (int pass = 0; pass < 2; pass++) {
+				for (int minute = pass; minute < 1000; minute += 2) {
+					history.add(new VisitedLocation(userId, new Location(minute, 0), new Date(minute * 60_000L)));
+				}
+			}
+			assertTrue(history.getArchivedCount() > 0);
+
+			List<VisitedLocation> window = history.between(100 * 60_000L, 199 * 60_000L, 1000);
+			assertEquals(100, window.size());
+			for (int i = 0; i < window.size(); i++) {
+				assertEquals((100 + i) * 60_000L, window.get(i).timeVisited.getTime());
+				assertEquals(100 + i, window.get(i).location.latitude, 1e-7);
+			}
+
+			assertEquals(5, history.between(Long.MIN_VALUE, Long.MAX_VALUE, 5).size());
+			assertEquals(0L, history.between(Long.MIN_VALUE, Long.MAX_VALUE, 5).get(0).timeVisited.getTime());
+			assertTrue(history.between(2000 * 60_000L, Long.MAX_VALUE, 5).isEmpty());
+		}
+	}
+
+	@Test
+	public void timeWindowKeepsTheInsertionOrderOfEqualTimes(@TempDir Path directory) throws Exception {
+		UUID userId = UUID.randomUUID();
+		try (HistorySegments segments = new HistorySegments(directory, 1 << 20)) {
+			LocationHistory history = new LocationHistory(userId);
+			history.enableArchive(segments, 10);
+			// four locations per minute, so that equal times straddle the blocks and the heap
+			for (int i = 0; i < 4000; i++) {
+				history.add(new VisitedLocation(userId, new Location(i * 1e-3, 0), new Date(i / 4 * 60_000L)));
+			}
+			assertTrue(history.getArchivedCount() > 3000);
+
+			List<VisitedLocation> window = history.between(100 * 60_000L, 999 * 60_000L, 10);
+			assertEquals(10, window.size());
+			for (int i = 0; i < window.size(); i++) {
+				assertEquals((400 + i) * 1e-3, window.get(i).location.latitude, 1e-7);
+			}
+
+			List<VisitedLocation> tail = history.between(995 * 60_000L, Long.MAX_VALUE, 1000);
+			assertEquals(20, tail.size());
+			for (int i = 0; i < tail.size(); i++) {
+				assertEquals((3980 + i) * 1e-3, tail.get(i).location.latitude, 1e-7);
+			}
+			assertEquals(3999, history.lastIndexOfInstance(history.get(3999)));
+			assertEquals(5, history.lastIndexOfInstance(history.get(5)));
+		}
+	}
+
+	private static void assertSameLocation(VisitedLocation expected, VisitedLocation actual) {
+		assertEquals(expected.userId, actual.userId);
+		assertEquals(expected.timeVisited, actual.timeVisited);
+		assertEquals(expected.location.latitude, actual.location.latitude, 1e-7);
+		assertEquals(expected.location.longitude, actual.location.longitude, 1e-7);
+	}
+}
@@ -0,0 +1,75 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.openclassrooms.tourguide.partition.ConsistentHashRing;
+import com.openclassrooms.tourguide.partition.FileLeaseCoordinator;
+import com.openclassrooms.tourguide.partition.PartitionCoordinator;
+
+public class TestPartitioning {
+	private static final int PARTITIONS = 64;
+	private static final Duration LEASE = Duration.ofMinutes(1);
+
+	@Test
+	public void joiningNodeOnlyTakesPartitions() {
+		ConsistentHashRing two = new ConsistentHashRing(List.of("a", "b"));
+		ConsistentHashRing three = new ConsistentHashRing(List.of("a", "b", "c"));
+
+		int moved = 0;
+		for (int partition = 0; partition < PARTITIONS; partition++) {
+			if (!two.ownerOf(partition).equals(three.ownerOf(partition))) {
+				assertEquals("c", three.ownerOf(partition));
+				moved++;
+			}
+		}
+		assertTrue(moved > 0 && moved < PARTITIONS);
+	}
+
+	@Test
+	public void nodesSharePartitionsWithoutOverlap(@TempDir Path directory) throws Exception {
+		try (FileLeaseCoordinator a = new FileLeaseCoordinator(directory, "a", PARTITIONS, LEASE)) {
+			assertEquals(PARTITIONS, a.getOwnedPartitions().size());
+
+			try (FileLeaseCoordinator b = new FileLeaseCoordinator(directory, "b", PARTITIONS, LEASE)) {
+				// b waits for a to release the partitions it is now assigned
+				assertTrue(b.getOwnedPartitions().isEmpty());
+				a.renew();
+				b.renew();
+
+				Set<Integer> union = new HashSet<>(a.getOwnedPartitions());
+				union.addAll(b.getOwnedPartitions());
+				assertEquals(PARTITIONS, union.size());
+				assertEquals(PARTITIONS, a.getOwnedPartitions().size() + b.getOwnedPartitions().size());
+				assertFalse(b.getOwnedPartitions().isEmpty());
+
+				List<UUID> users = IntStream.range(0, 1000).mapToObj(i -> UUID.randomUUID()).toList();
+				assertTrue(users.stream().allMatch(userId -> a.owns(userId) != b.owns(userId)));
+			}
+
+			a.renew();
+			assertEquals(PARTITIONS, a.getOwnedPartitions().size());
+			assertTrue(a.owns(UUID.randomUUID()));
+		}
+	}
+
+	@Test
+	public void partitionOfIsStable() {
+		UUID userId = UUID.randomUUID();
+		int partition = PartitionCoordinator.partitionOf(userId, PARTITIONS);
+		assertTrue(partition >= 0 && partition < PARTITIONS);
+		assertEquals(partition, PartitionCoordinator.partitionOf(UUID.fromString(userId.toString()), PARTITIONS));
+	}
+}
@@ -9,14 +9,17 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
+import com.openclassrooms.tourguide.client.GpsUtilClient;
+import com.openclassrooms.tourguide.client.LatencyProfile;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
 import com.openclassrooms.tourguide.service.AttractionsService;
 import org.apache.commons.lang3.time.StopWatch;
 import org.junit.jupiter.api.Test;
 
-import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
-import rewardCentral.RewardCentral;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
 import com.openclassrooms.tourguide.service.RewardsService;
 import com.openclassrooms.tourguide.service.TourGuideService;
@@ -46,16 +49,34 @@ public class TestPerformance {
 	 * highVolumeGetRewards: 100,000 users within 20 minutes:
 	 * assertTrue(TimeUnit.MINUTES.toSeconds(20) >=
 	 * TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()));
+	 *
+	 * The tests run against seeded local stand-ins of GpsUtil, RewardCentral and
+	 * TripPricer reproducing the latencies of the vendored libraries, so that two runs
+	 * with the same seed see the same data and latencies.
 	 */
+	private static final long SEED = 42;
+
+	private GpsUtilClient newGpsUtil() {
+		return new SimulatedGpsUtilClient(SEED, LatencyProfile.uniform(30, 100), 0);
+	}
+
+	private RewardsService newRewardsService() {
+		return new RewardsService(new SimulatedRewardCentralClient(SEED, LatencyProfile.uniform(1, 1000), 0));
+	}
+
+	private TourGuideService newTourGuideService(GpsUtilClient gpsUtil, RewardsService rewardsService) {
+		return new TourGuideService(gpsUtil, rewardsService,
+				new SimulatedTripPricerClient(SEED, LatencyProfile.uniform(1, 50), 0));
+	}
 
 	@Test
 	public void highVolumeTrackLocation() {
-		GpsUtil gpsUtil = new GpsUtil();
-		RewardsService rewardsService = new RewardsService(new RewardCentral());
+		GpsUtilClient gpsUtil = newGpsUtil();
+		RewardsService rewardsService = newRewardsService();
 		// Users should be incremented up to 100,000, and test finishes within 15
 		// minutes
 		InternalTestHelper.setInternalUserNumber(100);
-		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		TourGuideService tourGuideService = newTourGuideService(gpsUtil, rewardsService);
 
 		List<User> allUsers = tourGuideService.getAllUsers();
 
@@ -65,7 +86,7 @@ public class TestPerformance {
 		tourGuideService.trackUsersLocations(allUsers);
 
 		stopWatch.stop();
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 
 		System.out.println("highVolumeTrackLocation: Time Elapsed: "
 				+ TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime()) + " seconds.");
@@ -74,15 +95,15 @@ public class TestPerformance {
 
 	@Test
 	public void highVolumeGetRewards() {
-		GpsUtil gpsUtil = new GpsUtil();
-		RewardsService rewardsService = new RewardsService(new RewardCentral());
+		GpsUtilClient gpsUtil = newGpsUtil();
+		RewardsService rewardsService = newRewardsService();
 
 		// Users should be incremented up to 100,000, and test finishes within 20
 		// minutes
 		InternalTestHelper.setInternalUserNumber(100);
 		StopWatch stopWatch = new StopWatch();
 		stopWatch.start();
-		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		TourGuideService tourGuideService = newTourGuideService(gpsUtil, rewardsService);
 
 		Attraction attraction = allAttractions.get(0);
 		List<User> allUsers = tourGuideService.getAllUsers();
@@ -98,10 +119,10 @@ public class TestPerformance {
 		calculateRewardsFutures.forEach(CompletableFuture::join);
 
 		for (User user : allUsers) {
-            assertFalse(user.getUserRewards().isEmpty());
+            assertFalse(user.getUserRewards(AttractionsService.attractionIndex).isEmpty());
 		}
 		stopWatch.stop();
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 
 		System.out.println("highVolumeGetRewards: Time Elapsed: " + TimeUnit.MILLISECONDS.toSeconds(stopWatch.getTime())
 				+ " seconds.");
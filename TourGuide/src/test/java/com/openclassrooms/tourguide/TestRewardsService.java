@@ -1,23 +1,33 @@
 package com.openclassrooms.tourguide;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import com.openclassrooms.tourguide.service.AttractionsService;
 import org.junit.jupiter.api.Test;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.RewardRecalculation;
 import com.openclassrooms.tourguide.service.RewardsService;
 import com.openclassrooms.tourguide.service.TourGuideService;
 import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserPreferences;
 import com.openclassrooms.tourguide.user.UserReward;
 
 public class TestRewardsService {
@@ -36,8 +46,8 @@ public class TestRewardsService {
 		Attraction attraction = allAttractions.get(0);
 		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
 		tourGuideService.trackUserLocation(user);
-		List<UserReward> userRewards = user.getUserRewards();
-		tourGuideService.tracker.stopTracking();
+		List<UserReward> userRewards = user.getUserRewards(AttractionsService.attractionIndex);
+		tourGuideService.close();
         assertEquals(1, userRewards.size());
 	}
 
@@ -59,8 +69,160 @@ public class TestRewardsService {
 
 		rewardsService.calculateRewards(tourGuideService.getAllUsers().get(0)).join();
 		List<UserReward> userRewards = tourGuideService.getUserRewards(tourGuideService.getAllUsers().get(0));
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 
 		assertEquals(allAttractions.size(), userRewards.size());
 	}
+
+	@Test
+	public void userAttractionProximityOverridesProximityBuffer() {
+		RewardsService rewardsService = new RewardsService((attractionId, userId) -> 1);
+		rewardsService.setProximityBuffer(Integer.MAX_VALUE);
+		Attraction attraction = allAttractions.get(0);
+		int[] withinTenMiles = new int[1];
+		AttractionsService.attractionIndex.forEachWithin(attraction.latitude, attraction.longitude, 10,
+				ordinal -> withinTenMiles[0]++);
+
+		User onDefault = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		User withPreference = new User(UUID.randomUUID(), "jane", "000", "jane@tourGuide.com");
+		UserPreferences preferences = new UserPreferences();
+		preferences.setAttractionProximity(10);
+		withPreference.setUserPreferences(preferences);
+		for (User user : List.of(onDefault, withPreference)) {
+			VisitedLocation atAttraction = new VisitedLocation(user.getUserId(), attraction, new Date());
+			user.addToVisitedLocations(atAttraction);
+			rewardsService.calculateRewards(user, atAttraction).join();
+		}
+
+		assertTrue(withinTenMiles[0] < allAttractions.size());
+		assertEquals(allAttractions.size(), onDefault.getUserRewardCount());
+		assertEquals(withinTenMiles[0], withPreference.getUserRewardCount());
+		List<Integer> inRange = new ArrayList<>();
+		rewardsService.forEachAttractionWithinRange(withPreference, attraction, inRange::add);
+		assertEquals(withinTenMiles[0], inRange.size());
+	}
+
+	@Test
+	public void recalculateRewardsAfterProximityBufferChange() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(new RewardCentral());
+
+		InternalTestHelper.setInternalUserNumber(5);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+
+		RewardRecalculation recalculation = tourGuideService.setProximityBuffer(Integer.MAX_VALUE);
+		recalculation.completion().join();
+
+		assertEquals(5, recalculation.getProcessedUsers());
+		assertEquals(1.0, recalculation.getProgress());
+		for (User user : tourGuideService.getAllUsers()) {
+			assertEquals(allAttractions.size(), user.getUserRewards(AttractionsService.attractionIndex).size());
+		}
+		tourGuideService.close();
+	}
+
+	@Test
+	public void stationaryUserSkipsRewardEvaluation() {
+		RewardsService rewardsService = new RewardsService(new RewardCentral());
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		Attraction attraction = allAttractions.get(0);
+
+		VisitedLocation atAttraction = new VisitedLocation(user.getUserId(), attraction, new Date());
+		user.addToVisitedLocations(atAttraction);
+		rewardsService.calculateRewards(user, atAttraction).join();
+		int rewardCount = user.getUserRewards(AttractionsService.attractionIndex).size();
+
+		VisitedLocation stillThere = new VisitedLocation(user.getUserId(),
+				new Location(attraction.latitude + 0.001, attraction.longitude), new Date());
+		user.addToVisitedLocations(stillThere);
+		CompletableFuture<Void> evaluation = rewardsService.calculateRewards(user, stillThere);
+
+		assertTrue(evaluation.isDone());
+		assertTrue(rewardCount >= 1);
+		assertEquals(rewardCount, user.getUserRewards(AttractionsService.attractionIndex).size());
+	}
+
+	@Test
+	public void recalculationDropsRewardsOfAClearedHistory() throws InterruptedException {
+		CountDownLatch called = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try (RewardsService rewardsService = new RewardsService((attractionId, userId) -> {
+			called.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return 1;
+		})) {
+			User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), allAttractions.get(0), new Date()));
+
+			RewardRecalculation recalculation = rewardsService.recalculateRewards(List.of(user));
+			assertTrue(called.await(10, TimeUnit.SECONDS));
+			user.clearVisitedLocations();
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(0, 0), new Date()));
+			release.countDown();
+
+			recalculation.completion().join();
+			assertEquals(0, user.getUserRewardCount());
+		}
+	}
+
+	@Test
+	public void attractionProximityIsValidated() {
+		UserPreferences preferences = new UserPreferences();
+		assertThrows(IllegalArgumentException.class, () -> preferences.setAttractionProximity(0));
+		assertThrows(IllegalArgumentException.class, () -> preferences.setAttractionProximity(-10));
+		assertThrows(IllegalArgumentException.class,
+				() -> preferences.setAttractionProximity(UserPreferences.MAX_ATTRACTION_PROXIMITY + 1));
+		assertEquals(UserPreferences.NO_ATTRACTION_PROXIMITY, preferences.getAttractionProximity());
+
+		preferences.setAttractionProximity(UserPreferences.MAX_ATTRACTION_PROXIMITY);
+		preferences.setAttractionProximity(UserPreferences.NO_ATTRACTION_PROXIMITY);
+		assertEquals(UserPreferences.NO_ATTRACTION_PROXIMITY, preferences.getAttractionProximity());
+	}
+
+	@Test
+	public void userRewardsViewResolvesCompactRewards() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		Attraction attraction = allAttractions.get(3);
+		VisitedLocation visitedLocation = new VisitedLocation(user.getUserId(), attraction, new Date());
+		user.addToVisitedLocations(visitedLocation);
+
+		user.addUserReward(new UserReward(visitedLocation, attraction, 42), AttractionsService.attractionIndex);
+
+		List<UserReward> userRewards = user.getUserRewards(AttractionsService.attractionIndex);
+		assertEquals(1, userRewards.size());
+		assertSame(visitedLocation, userRewards.get(0).visitedLocation);
+		assertEquals(attraction.attractionName, userRewards.get(0).attraction.attractionName);
+		assertEquals(42, userRewards.get(0).getRewardPoints());
+		assertTrue(user.hasUserReward(3));
+		assertThrows(IllegalArgumentException.class, () -> user.addUserReward(
+				new UserReward(new VisitedLocation(user.getUserId(), attraction, new Date()), attraction, 1),
+				AttractionsService.attractionIndex));
+		Attraction unknown = new Attraction("Unknown", "Nowhere", "NA", 0, 0);
+		assertThrows(IllegalArgumentException.class, () -> user.addUserReward(
+				new UserReward(visitedLocation, unknown, 1), AttractionsService.attractionIndex));
+		assertEquals(1, user.getUserRewardCount());
+	}
+
+	@Test
+	public void clearedHistoryDetachesRewards() {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		Attraction attraction = allAttractions.get(3);
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+		user.addUserReward(3, 0, 42);
+
+		user.clearVisitedLocations();
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), allAttractions.get(5), new Date()));
+
+		UserReward reward = user.getUserRewards(AttractionsService.attractionIndex).get(0);
+		assertNull(reward.visitedLocation);
+		assertEquals(42, reward.getRewardPoints());
+		assertEquals(42, user.getCumulativeRewardPoints());
+		assertThrows(IllegalArgumentException.class, () -> user.addUserReward(4, -1, 1));
+		assertThrows(IllegalArgumentException.class, () -> user.addUserReward(4, 1, 1));
+	}
 }
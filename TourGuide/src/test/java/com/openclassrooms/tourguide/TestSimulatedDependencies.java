@@ -0,0 +1,76 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.client.DependencyUnavailableException;
+import com.openclassrooms.tourguide.client.LatencyProfile;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
+import tripPricer.Provider;
+
+public class TestSimulatedDependencies {
+
+	@Test
+	public void sameSeedReturnsSameLocations() {
+		UUID userId = UUID.randomUUID();
+		SimulatedGpsUtilClient gpsUtil = new SimulatedGpsUtilClient(1, LatencyProfile.none(), 0);
+		SimulatedGpsUtilClient sameSeed = new SimulatedGpsUtilClient(1, LatencyProfile.none(), 0);
+
+		VisitedLocation first = gpsUtil.getUserLocation(userId);
+		VisitedLocation second = gpsUtil.getUserLocation(userId);
+
+		assertEquals(first.location.latitude, sameSeed.getUserLocation(userId).location.latitude);
+		assertEquals(second.location.longitude, sameSeed.getUserLocation(userId).location.longitude);
+		assertNotEquals(first.location.latitude, second.location.latitude);
+	}
+
+	@Test
+	public void rewardPointsAndDealsDependOnSeedAndArguments() {
+		UUID attractionId = UUID.randomUUID();
+		UUID userId = UUID.randomUUID();
+		SimulatedRewardCentralClient rewardCentral = new SimulatedRewardCentralClient(1, LatencyProfile.none(), 0);
+		SimulatedTripPricerClient tripPricer = new SimulatedTripPricerClient(1, LatencyProfile.none(), 0);
+
+		int points = rewardCentral.getAttractionRewardPoints(attractionId, userId);
+		List<Provider> providers = tripPricer.getPrice("key", userId, 2, 1, 3, 100);
+
+		assertEquals(points, rewardCentral.getAttractionRewardPoints(attractionId, userId));
+		assertTrue(points >= 1 && points < 1000);
+		assertEquals(5, providers.size());
+		assertEquals(providers.get(0).price, tripPricer.getPrice("key", userId, 2, 1, 3, 100).get(0).price);
+		assertEquals(5, providers.stream().map(provider -> provider.name).distinct().count());
+	}
+
+	@Test
+	public void injectedErrorsFailCalls() {
+		SimulatedRewardCentralClient rewardCentral = new SimulatedRewardCentralClient(1, LatencyProfile.none(), 1);
+
+		assertThrows(DependencyUnavailableException.class,
+				() -> rewardCentral.getAttractionRewardPoints(UUID.randomUUID(), UUID.randomUUID()));
+	}
+
+	@Test
+	public void parseLatencyProfiles() {
+		SplittableRandom random = new SplittableRandom(3);
+
+		assertEquals(0, LatencyProfile.parse("none").sampleMillis(random));
+		assertEquals(25, LatencyProfile.parse("fixed:25").sampleMillis(random));
+		double uniform = LatencyProfile.parse("uniform:10:20").sampleMillis(random);
+		assertTrue(uniform >= 10 && uniform < 20);
+		assertTrue(LatencyProfile.parse("lognormal:50:0.5").sampleMillis(random) > 0);
+		assertTrue(LatencyProfile.parse("bimodal:5:500:0.01").sampleMillis(random) > 0);
+		assertThrows(IllegalArgumentException.class, () -> LatencyProfile.parse("gaussian:10"));
+		assertThrows(IllegalArgumentException.class, () -> LatencyProfile.parse("fixed"));
+	}
+}
@@ -1,22 +1,40 @@
 package com.openclassrooms.tourguide;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import com.openclassrooms.tourguide.dto.AttractionTrafficDto;
+import com.openclassrooms.tourguide.dto.HeatmapCellDto;
+import com.openclassrooms.tourguide.dto.LeaderboardEntryDto;
 import com.openclassrooms.tourguide.dto.NearbyAttractionDto;
+import com.openclassrooms.tourguide.service.AttractionsService;
 import org.junit.jupiter.api.Test;
 
 import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.client.LatencyProfile;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
+import com.openclassrooms.tourguide.helper.Constants;
 import com.openclassrooms.tourguide.helper.InternalTestHelper;
 import com.openclassrooms.tourguide.service.RewardsService;
 import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.NearbyAttractionsView;
 import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserPreferences;
 import tripPricer.Provider;
 
 public class TestTourGuideService {
@@ -30,7 +48,7 @@ public class TestTourGuideService {
 
 		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
 		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
         assertEquals(visitedLocation.userId, user.getUserId());
 	}
 
@@ -50,7 +68,7 @@ public class TestTourGuideService {
 		User retrivedUser = tourGuideService.getUser(user.getUserName());
 		User retrivedUser2 = tourGuideService.getUser(user2.getUserName());
 
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 
 		assertEquals(user, retrivedUser);
 		assertEquals(user2, retrivedUser2);
@@ -71,7 +89,7 @@ public class TestTourGuideService {
 
 		List<User> allUsers = tourGuideService.getAllUsers();
 
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 
 		assertTrue(allUsers.contains(user));
 		assertTrue(allUsers.contains(user2));
@@ -87,7 +105,7 @@ public class TestTourGuideService {
 		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
 		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
 
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 
 		assertEquals(user.getUserId(), visitedLocation.userId);
 	}
@@ -104,7 +122,7 @@ public class TestTourGuideService {
 
 		List<Attraction> attractions = tourGuideService.getNearByAttractions(visitedLocation);
 
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 
 		assertEquals(5, attractions.size());
 	}
@@ -132,7 +150,7 @@ public class TestTourGuideService {
 
 		List<NearbyAttractionDto> attractionDtos = tourGuideService.getNearByAttractionsInfo(user, attractions);
 
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 
 		// Assertions
 		assertEquals(5, attractionDtos.size(), "There should be exactly 5 nearby attractions");
@@ -160,6 +178,168 @@ public class TestTourGuideService {
 		}
 	}
 
+	@Test
+	public void getNearByAttractionsInfoOfUserMatchesTwoStepQuery() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
+		List<Attraction> attractions = tourGuideService.getNearByAttractions(visitedLocation);
+
+		List<NearbyAttractionDto> attractionDtos = tourGuideService.getNearByAttractionsInfo(user);
+
+		assertEquals(attractions.size(), attractionDtos.size());
+		for (int i = 0; i < attractionDtos.size(); i++) {
+			NearbyAttractionDto dto = attractionDtos.get(i);
+			assertEquals(attractions.get(i).attractionName, dto.attractionName());
+			assertEquals(rewardsService.getDistance(visitedLocation.location, attractions.get(i)), dto.distance(), 0.000001);
+			assertEquals(visitedLocation.location, dto.userLocation());
+		}
+		tourGuideService.close();
+	}
+
+	@Test
+	public void nearbyAttractionsAreMaterializedByTracking() {
+		AtomicInteger rewardCentralCalls = new AtomicInteger();
+		RewardsService rewardsService = new RewardsService((attractionId, userId) -> {
+			rewardCentralCalls.incrementAndGet();
+			return 1;
+		});
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(new SimulatedGpsUtilClient(1, LatencyProfile.none(), 0),
+				rewardsService, new SimulatedTripPricerClient(1, LatencyProfile.none(), 0));
+		tourGuideService.tracker.stopTracking();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		VisitedLocation visitedLocation = tourGuideService.trackUserLocation(user);
+
+		NearbyAttractionsView view = tourGuideService.refreshNearbyAttractions(user, visitedLocation.location).join();
+		int callsAfterRefresh = rewardCentralCalls.get();
+		assertSame(view.attractions(), tourGuideService.getNearByAttractionsInfo(user));
+		Location closeBy = new Location(visitedLocation.location.latitude + 0.001, visitedLocation.location.longitude);
+		assertSame(view, tourGuideService.refreshNearbyAttractions(user, closeBy).join());
+		assertEquals(callsAfterRefresh, rewardCentralCalls.get());
+
+		Location farAway = new Location(-visitedLocation.location.latitude, visitedLocation.location.longitude + 90);
+		NearbyAttractionsView moved = tourGuideService.refreshNearbyAttractions(user, farAway).join();
+		assertEquals(farAway, moved.location());
+		assertEquals(callsAfterRefresh + Constants.NB_OF_NEARBY_ATTRACTIONS, rewardCentralCalls.get());
+		tourGuideService.close();
+	}
+
+	@Test
+	public void nearbyAttractionsRefreshesAreCoalescedPerUser() throws InterruptedException {
+		AtomicInteger rewardCentralCalls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		RewardsService rewardsService = new RewardsService((attractionId, userId) -> {
+			rewardCentralCalls.incrementAndGet();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return 1;
+		});
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(new SimulatedGpsUtilClient(1, LatencyProfile.none(), 0),
+				rewardsService, new SimulatedTripPricerClient(1, LatencyProfile.none(), 0));
+		tourGuideService.tracker.stopTracking();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+
+		CompletableFuture<NearbyAttractionsView> first = tourGuideService.refreshNearbyAttractions(user, new Location(10, 10));
+		CompletableFuture<NearbyAttractionsView> second = tourGuideService.refreshNearbyAttractions(user, new Location(-10, -10));
+		assertSame(first, second);
+		release.countDown();
+
+		assertEquals(10, first.join().location().latitude);
+		assertEquals(Constants.NB_OF_NEARBY_ATTRACTIONS, rewardCentralCalls.get());
+		NearbyAttractionsView moved = tourGuideService.refreshNearbyAttractions(user, new Location(-10, -10)).join();
+		assertEquals(-10, moved.location().latitude);
+		tourGuideService.close();
+	}
+
+	@Test
+	public void attractionsWithinRangeFollowTheUserPreference() throws InterruptedException {
+		RewardsService rewardsService = new RewardsService((attractionId, userId) -> 1);
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(new SimulatedGpsUtilClient(1, LatencyProfile.none(), 0),
+				rewardsService, new SimulatedTripPricerClient(1, LatencyProfile.none(), 0));
+		tourGuideService.tracker.stopTracking();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		Attraction attraction = AttractionsService.allAttractions.get(0);
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+		tourGuideService.addUser(user);
+
+		List<NearbyAttractionDto> withinBuffer = tourGuideService.getAttractionsWithinRange(user);
+		assertEquals(attraction.attractionName, withinBuffer.get(0).attractionName());
+		assertTrue(withinBuffer.stream().allMatch(dto -> dto.distance() <= 10));
+
+		UserPreferences preferences = new UserPreferences();
+		preferences.setAttractionProximity(UserPreferences.MAX_ATTRACTION_PROXIMITY);
+		tourGuideService.setUserPreferences(user, preferences);
+		List<NearbyAttractionDto> withinPreference = tourGuideService.getAttractionsWithinRange(user);
+		assertEquals(AttractionsService.allAttractions.size(), withinPreference.size());
+		assertEquals(withinPreference.stream().sorted(Comparator.comparingDouble(NearbyAttractionDto::distance)).toList(),
+				withinPreference);
+
+		for (int i = 0; i < 500 && user.getUserRewardCount() < AttractionsService.allAttractions.size(); i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(AttractionsService.allAttractions.size(), user.getUserRewardCount());
+		tourGuideService.close();
+	}
+
+	@Test
+	public void getLeaderboard() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+
+		List<User> users = IntStream.range(0, 3).mapToObj(i -> {
+			User user = new User(UUID.randomUUID(), "jon" + i, "000", "jon" + i + "@tourGuide.com");
+			Attraction attraction = AttractionsService.allAttractions.get(i);
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), attraction, new Date()));
+			tourGuideService.addUser(user);
+			return user;
+		}).toList();
+		users.forEach(user -> rewardsService.calculateRewards(user).join());
+
+		List<LeaderboardEntryDto> leaders = tourGuideService.getLeaderboard(2);
+		User best = users.stream().max(Comparator.comparingInt(User::getCumulativeRewardPoints)).orElseThrow();
+
+		assertEquals(2, leaders.size());
+		assertEquals(best.getCumulativeRewardPoints(), leaders.get(0).rewardPoints());
+		assertTrue(leaders.get(0).rewardPoints() >= leaders.get(1).rewardPoints());
+		tourGuideService.close();
+	}
+
+	@Test
+	public void getAttractionTraffic() {
+		GpsUtil gpsUtil = new GpsUtil();
+		RewardsService rewardsService = new RewardsService(new RewardCentral());
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(gpsUtil, rewardsService);
+		tourGuideService.tracker.stopTracking();
+
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), AttractionsService.allAttractions.get(0), new Date()));
+		tourGuideService.trackUserLocation(user);
+
+		List<AttractionTrafficDto> traffic = tourGuideService.getAttractionTraffic();
+		List<HeatmapCellDto> heatmap = tourGuideService.getHeatmap();
+
+		assertEquals(AttractionsService.allAttractions.size(), traffic.size());
+		assertEquals(user.getUserRewardCount(), traffic.stream().mapToLong(AttractionTrafficDto::rewardsGranted).sum());
+		assertEquals(user.getCumulativeRewardPoints(), traffic.stream().mapToLong(AttractionTrafficDto::rewardPointsGranted).sum());
+		assertEquals(1, heatmap.stream().mapToLong(HeatmapCellDto::positions).sum());
+		tourGuideService.close();
+	}
+
 	public void getTripDeals() {
 		GpsUtil gpsUtil = new GpsUtil();
 		RewardsService rewardsService = new RewardsService(new RewardCentral());
@@ -170,7 +350,7 @@ public class TestTourGuideService {
 
 		List<Provider> providers = tourGuideService.getTripDeals(user);
 
-		tourGuideService.tracker.stopTracking();
+		tourGuideService.close();
 
 		assertEquals(10, providers.size());
 	}
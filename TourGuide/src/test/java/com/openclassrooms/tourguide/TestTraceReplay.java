@@ -0,0 +1,80 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import gpsUtil.location.Attraction;
+import com.openclassrooms.tourguide.client.LatencyProfile;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.AttractionsService;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.tracker.TraceEvent;
+import com.openclassrooms.tourguide.tracker.TraceFile;
+import com.openclassrooms.tourguide.tracker.TraceReplayReport;
+import com.openclassrooms.tourguide.tracker.TraceReplayer;
+import com.openclassrooms.tourguide.user.User;
+
+public class TestTraceReplay {
+
+	@Test
+	public void replayFeedsHistoriesAndRewards() throws Exception {
+		RewardsService rewardsService = new RewardsService(new SimulatedRewardCentralClient(1, LatencyProfile.none(), 0));
+		InternalTestHelper.setInternalUserNumber(10);
+		TourGuideService tourGuideService = new TourGuideService(new SimulatedGpsUtilClient(1, LatencyProfile.none(), 0),
+				rewardsService, new SimulatedTripPricerClient(1, LatencyProfile.none(), 0));
+		assertTrue(tourGuideService.tracker.stopTracking(Duration.ofSeconds(10)));
+
+		List<User> users = tourGuideService.getAllUsers();
+		int[] historySizes = users.stream().mapToInt(user -> user.getVisitedLocations().size()).toArray();
+		List<TraceEvent> trace = new ArrayList<>();
+		for (int i = 0; i < users.size(); i++) {
+			Attraction attraction = AttractionsService.allAttractions.get(i);
+			trace.add(new TraceEvent(users.get(i).getUserId(), attraction.latitude, attraction.longitude, 1000L * i));
+		}
+		trace.add(new TraceEvent(UUID.randomUUID(), 0, 0, 0));
+
+		TraceReplayReport report = new TraceReplayer(tourGuideService, rewardsService, 4).replay(trace.stream());
+
+		assertEquals(users.size(), report.events());
+		assertEquals(1, report.skippedEvents());
+		assertEquals(0, report.failedEvents());
+		assertTrue(report.eventsPerSecond() > 0);
+		for (int i = 0; i < users.size(); i++) {
+			User user = users.get(i);
+			assertEquals(historySizes[i] + 1, user.getVisitedLocations().size());
+			assertEquals(1000L * i, user.getLastVisitedLocation().timeVisited.getTime());
+			assertTrue(user.hasUserReward(AttractionsService.attractionIndex.ordinalOf(
+					AttractionsService.allAttractions.get(i).attractionName)));
+		}
+		tourGuideService.close();
+	}
+
+	@Test
+	public void traceFileRoundTrip(@TempDir Path directory) throws Exception {
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		List<TraceEvent> events = List.of(new TraceEvent(user.getUserId(), 33.817595, -117.922008, 2000),
+				new TraceEvent(user.getUserId(), -12.5, 170.25, 1000));
+		events.forEach(event -> user.addToVisitedLocations(event.toVisitedLocation()));
+
+		Path path = directory.resolve("trace.csv");
+		TraceFile.record(path, List.of(user));
+
+		try (Stream<TraceEvent> read = TraceFile.read(path)) {
+			assertEquals(List.of(events.get(1), events.get(0)), read.toList());
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.openclassrooms.tourguide.client.LatencyProfile;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.AttractionsService;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.tracing.FileSpanExporter;
+import com.openclassrooms.tourguide.tracing.InMemorySpanExporter;
+import com.openclassrooms.tourguide.tracing.Span;
+import com.openclassrooms.tourguide.tracing.SpanData;
+import com.openclassrooms.tourguide.tracing.SpanExporter;
+import com.openclassrooms.tourguide.tracing.Tracer;
+import com.openclassrooms.tourguide.user.User;
+
+public class TestTracing {
+
+	@AfterEach
+	public void disableTracing() {
+		Tracer.setExporter(SpanExporter.NONE);
+	}
+
+	@Test
+	public void traceFollowsTrackingAcrossThreads() {
+		InMemorySpanExporter exporter = new InMemorySpanExporter(1000);
+		Tracer.setExporter(exporter);
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = newTourGuideService(Integer.MAX_VALUE);
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+
+		String traceId;
+		try (Span root = Tracer.startSpan("test")) {
+			traceId = root.getTraceId();
+			tourGuideService.trackUserLocation(user);
+		}
+		assertNull(Tracer.current());
+
+		List<SpanData> trace = exporter.getTrace(traceId);
+		SpanData root = single(trace, "test");
+		SpanData tracking = single(trace, "TourGuideService.trackUserLocation");
+		SpanData gpsUtil = single(trace, "GpsUtil.getUserLocation");
+		SpanData calculation = single(trace, "RewardsService.calculateRewards");
+		assertNull(root.parentSpanId());
+		assertEquals(root.spanId(), tracking.parentSpanId());
+		assertEquals(tracking.spanId(), gpsUtil.parentSpanId());
+		assertEquals(tracking.spanId(), calculation.parentSpanId());
+		assertNotEquals(tracking.threadName(), calculation.threadName());
+
+		List<SpanData> rewardCentralCalls = trace.stream()
+				.filter(span -> span.name().equals("RewardCentral.getAttractionRewardPoints"))
+				.toList();
+		assertEquals(AttractionsService.allAttractions.size(), rewardCentralCalls.size());
+		assertTrue(rewardCentralCalls.stream().allMatch(span -> span.parentSpanId().equals(calculation.spanId())));
+		tourGuideService.close();
+	}
+
+	@Test
+	public void parallelTrackingStaysInTheCallerTrace() {
+		InMemorySpanExporter exporter = new InMemorySpanExporter(1000);
+		Tracer.setExporter(exporter);
+		InternalTestHelper.setInternalUserNumber(20);
+		TourGuideService tourGuideService = newTourGuideService(10);
+
+		String traceId;
+		try (Span root = Tracer.startSpan("cycle")) {
+			traceId = root.getTraceId();
+			tourGuideService.trackUsersLocations(tourGuideService.getAllUsers());
+		}
+
+		assertEquals(20, exporter.getTrace(traceId).stream()
+				.filter(span -> span.name().equals("TourGuideService.trackUserLocation"))
+				.count());
+		tourGuideService.close();
+	}
+
+	@Test
+	public void fileExporterWritesJsonLines(@TempDir Path directory) throws Exception {
+		Path file = directory.resolve("traces.jsonl");
+		try (FileSpanExporter exporter = new FileSpanExporter(file)) {
+			Tracer.setExporter(exporter);
+			try (Span root = Tracer.startSpan("root")) {
+				Tracer.startSpan("child").close();
+			}
+		}
+
+		List<String> lines = Files.readAllLines(file);
+		assertEquals(2, lines.size());
+		assertTrue(lines.get(0).contains("\"name\":\"child\""));
+		assertTrue(lines.get(1).contains("\"parentSpanId\":null"));
+	}
+
+	private static TourGuideService newTourGuideService(int proximityBuffer) {
+		RewardsService rewardsService = new RewardsService(new SimulatedRewardCentralClient(1, LatencyProfile.none(), 0));
+		rewardsService.setProximityBuffer(proximityBuffer);
+		TourGuideService tourGuideService = new TourGuideService(new SimulatedGpsUtilClient(1, LatencyProfile.none(), 0),
+				rewardsService, new SimulatedTripPricerClient(1, LatencyProfile.none(), 0));
+		tourGuideService.tracker.stopTracking();
+		return tourGuideService;
+	}
+
+	private static SpanData single(List<SpanData> spans, String name) {
+		List<SpanData> matching = spans.stream().filter(span -> span.name().equals(name)).toList();
+		assertEquals(1, matching.size(), name);
+		return matching.get(0);
+	}
+}
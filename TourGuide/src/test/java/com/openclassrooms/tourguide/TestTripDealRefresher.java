@@ -0,0 +1,81 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.tourguide.client.LatencyProfile;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.service.TripDealRefresher;
+import com.openclassrooms.tourguide.user.TripDealQuery;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserPreferences;
+
+import tripPricer.Provider;
+
+public class TestTripDealRefresher {
+
+	@Test
+	public void changesAreDebouncedIntoOneRepricing() throws Exception {
+		AtomicInteger repricings = new AtomicInteger();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+		try (TripDealRefresher refresher = new TripDealRefresher(pricedUser -> {
+			repricings.incrementAndGet();
+			pricedUser.setTripDeals(TripDealQuery.of(pricedUser), List.of());
+		}, Duration.ofMillis(100), 10)) {
+			for (int i = 0; i < 5; i++) {
+				refresher.onRewardGranted(user, i, 10);
+			}
+			awaitNoPending(refresher);
+			TimeUnit.MILLISECONDS.sleep(50);
+			assertEquals(1, repricings.get());
+
+			refresher.schedule(user);
+			awaitNoPending(refresher);
+			TimeUnit.MILLISECONDS.sleep(50);
+			assertEquals(1, repricings.get());
+		}
+	}
+
+	@Test
+	public void tripDealsArePrecomputedUntilPreferencesChange() {
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(new SimulatedGpsUtilClient(1, LatencyProfile.none(), 0),
+				new RewardsService(new SimulatedRewardCentralClient(1, LatencyProfile.none(), 0)),
+				new SimulatedTripPricerClient(1, LatencyProfile.none(), 0));
+		tourGuideService.tracker.stopTracking();
+		User user = new User(UUID.randomUUID(), "jon", "000", "jon@tourGuide.com");
+
+		List<Provider> deals = tourGuideService.getTripDeals(user);
+		assertSame(deals, tourGuideService.getTripDeals(user));
+
+		UserPreferences preferences = new UserPreferences();
+		preferences.setNumberOfAdults(2);
+		tourGuideService.setUserPreferences(user, preferences);
+		List<Provider> repriced = tourGuideService.getTripDeals(user);
+		assertNotSame(deals, repriced);
+		assertEquals(new TripDealQuery(2, 0, 1, 0), user.getTripDealsQuery());
+		tourGuideService.close();
+	}
+
+	private static void awaitNoPending(TripDealRefresher refresher) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (refresher.getPendingCount() > 0 && System.nanoTime() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+		assertEquals(0, refresher.getPendingCount());
+	}
+}
@@ -0,0 +1,197 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.bulk.UserBulkFile;
+import com.openclassrooms.tourguide.client.LatencyProfile;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.AttractionsService;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+import com.openclassrooms.tourguide.user.UserPreferences;
+
+public class TestUserBulkFile {
+
+	@Test
+	public void usersRoundTripWithHistoryRewardsAndPreferences() throws Exception {
+		List<User> users = List.of(user("jon", 3, 2), user("jane", 0, 0), user("bob", 200_000, 5));
+		users.get(1).setPhoneNumber(null);
+		users.get(2).setLatestLocationTimestamp(new Date(123456789L));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		assertEquals(3, UserBulkFile.write(Channels.newChannel(bytes), users));
+
+		Map<String, User> read = new ConcurrentHashMap<>();
+		long count = UserBulkFile.read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), 4,
+				user -> read.put(user.getUserName(), user));
+
+		assertEquals(3, count);
+		for (User expected : users) {
+			User actual = read.get(expected.getUserName());
+			assertEquals(expected.getUserId(), actual.getUserId());
+			assertEquals(expected.getPhoneNumber(), actual.getPhoneNumber());
+			assertEquals(expected.getEmailAddress(), actual.getEmailAddress());
+			assertEquals(expected.getLatestLocationTimestamp(), actual.getLatestLocationTimestamp());
+			assertEquals(expected.getUserPreferences().getAttractionProximity(),
+					actual.getUserPreferences().getAttractionProximity());
+			assertEquals(expected.getUserPreferences().getNumberOfChildren(),
+					actual.getUserPreferences().getNumberOfChildren());
+			assertEquals(expected.getVisitedLocations().size(), actual.getVisitedLocations().size());
+			for (int i = 0; i < expected.getVisitedLocations().size(); i += 997) {
+				VisitedLocation expectedLocation = expected.getVisitedLocations().get(i);
+				VisitedLocation actualLocation = actual.getVisitedLocations().get(i);
+				assertEquals(expectedLocation.timeVisited, actualLocation.timeVisited);
+				assertEquals(expectedLocation.location.latitude, actualLocation.location.latitude, 1e-7);
+				assertEquals(expectedLocation.location.longitude, actualLocation.location.longitude, 1e-7);
+			}
+			assertEquals(expected.getUserRewardCount(), actual.getUserRewardCount());
+			assertEquals(expected.getCumulativeRewardPoints(), actual.getCumulativeRewardPoints());
+			for (int i = 0; i < expected.getUserRewardCount(); i++) {
+				assertEquals(expected.getUserRewardStore().attractionOrdinal(i), actual.getUserRewardStore().attractionOrdinal(i));
+				assertEquals(expected.getUserRewardStore().locationIndex(i), actual.getUserRewardStore().locationIndex(i));
+			}
+		}
+		assertNull(read.get("jane").getPhoneNumber());
+	}
+
+	@Test
+	public void detachedRewardsRoundTrip() throws Exception {
+		User user = user("jon", 3, 2);
+		user.clearVisitedLocations();
+		user.addToVisitedLocations(new VisitedLocation(user.getUserId(), new Location(1, 2), new Date()));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		UserBulkFile.write(Channels.newChannel(bytes), List.of(user));
+		Map<String, User> read = new ConcurrentHashMap<>();
+		UserBulkFile.read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), 1,
+				actual -> read.put(actual.getUserName(), actual));
+
+		User actual = read.get("jon");
+		assertEquals(2, actual.getUserRewardCount());
+		assertEquals(user.getCumulativeRewardPoints(), actual.getCumulativeRewardPoints());
+		assertNull(actual.getUserRewards(AttractionsService.attractionIndex).get(0).visitedLocation);
+		assertNull(actual.getUserRewards(AttractionsService.attractionIndex).get(1).visitedLocation);
+	}
+
+	@Test
+	public void truncatedStreamIsRejected() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		UserBulkFile.write(Channels.newChannel(bytes), List.of(user("jon", 10, 1)));
+		byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 3);
+
+		assertThrows(IOException.class, () -> UserBulkFile.read(
+				Channels.newChannel(new ByteArrayInputStream(truncated)), 2, user -> { }));
+		assertThrows(IOException.class, () -> UserBulkFile.read(
+				Channels.newChannel(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 })), 2, user -> { }));
+	}
+
+	@Test
+	public void oversizedRecordIsRejectedBeforeAllocation() {
+		ByteBuffer stream = ByteBuffer.allocate(3 * Integer.BYTES)
+				.putInt(UserBulkFile.MAGIC).putInt(UserBulkFile.VERSION).putInt(Integer.MAX_VALUE);
+
+		IOException e = assertThrows(IOException.class, () -> UserBulkFile.read(
+				Channels.newChannel(new ByteArrayInputStream(stream.array())), 2, user -> { }));
+		assertTrue(e.getMessage().contains("length"));
+	}
+
+	@Test
+	public void oversizedLocationCountFailsTheImport() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		UserBulkFile.write(Channels.newChannel(bytes), List.of(user("jon", 0, 0)));
+		ByteBuffer valid = ByteBuffer.wrap(bytes.toByteArray());
+		byte[] record = new byte[valid.getInt(2 * Integer.BYTES)];
+		valid.position(3 * Integer.BYTES).get(record);
+
+		// replace the empty history, then the reward count, by a history claiming 2^31 - 1 locations
+		byte[] locationCount = { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07 };
+		int historyStart = record.length - 1 - Integer.BYTES;
+		ByteBuffer stream = ByteBuffer.allocate(3 * Integer.BYTES + historyStart + locationCount.length + Integer.BYTES)
+				.putInt(valid.getInt(0)).putInt(valid.getInt(Integer.BYTES))
+				.putInt(historyStart + locationCount.length + Integer.BYTES)
+				.put(record, 0, historyStart).put(locationCount).putInt(0);
+
+		AtomicInteger accepted = new AtomicInteger();
+		IOException e = assertThrows(IOException.class, () -> UserBulkFile.read(
+				Channels.newChannel(new ByteArrayInputStream(stream.array())), 2, user -> accepted.incrementAndGet()));
+		assertTrue(e.getMessage().contains("locations"));
+		assertEquals(0, accepted.get());
+	}
+
+	@Test
+	public void serviceExportsAndImportsThePopulation(@TempDir Path directory) throws Exception {
+		InternalTestHelper.setInternalUserNumber(50);
+		TourGuideService source = service();
+		source.addUser(user("jon", 10, 3));
+		Path file = directory.resolve("users.bin");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			assertEquals(51, source.exportUsers(channel));
+		}
+
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService target = service();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			assertEquals(51, target.importUsers(channel));
+		}
+
+		assertEquals(51, target.getAllUsers().size());
+		assertEquals(3, target.getUser("jon").getUserRewardCount());
+		assertEquals(source.getUser("internalUser7").getLastVisitedLocation().timeVisited,
+				target.getUser("internalUser7").getLastVisitedLocation().timeVisited);
+		assertEquals("jon", target.getLeaderboard(1).get(0).userName());
+		source.close();
+		target.close();
+	}
+
+	private static TourGuideService service() {
+		TourGuideService tourGuideService = new TourGuideService(new SimulatedGpsUtilClient(1, LatencyProfile.none(), 0),
+				new RewardsService(new SimulatedRewardCentralClient(1, LatencyProfile.none(), 0)),
+				new SimulatedTripPricerClient(1, LatencyProfile.none(), 0));
+		tourGuideService.tracker.stopTracking();
+		return tourGuideService;
+	}
+
+	private static User user(String userName, int locations, int rewards) {
+		User user = new User(UUID.randomUUID(), userName, "000", userName + "@tourGuide.com");
+		UserPreferences preferences = new UserPreferences();
+		preferences.setAttractionProximity(25);
+		preferences.setNumberOfChildren(2);
+		user.setUserPreferences(preferences);
+		for (int i = 0; i < locations; i++) {
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(),
+					new Location(Math.sin(i) * 80, Math.cos(i) * 170), new Date(1_700_000_000_000L + i * 1000L)));
+		}
+		for (int i = 0; i < rewards; i++) {
+			user.addUserReward(i, i % locations, 100 * (i + 1));
+		}
+		return user;
+	}
+}
@@ -0,0 +1,30 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.openclassrooms.tourguide.json.TourGuideJsonModule;
+import com.openclassrooms.tourguide.warmup.WarmUp;
+import com.openclassrooms.tourguide.warmup.WarmUpReport;
+
+public class TestWarmUp {
+
+	@Test
+	public void warmUpExercisesSyntheticUsersAndCountsCompilations() throws Exception {
+		ObjectMapper jsonMapper = new ObjectMapper().registerModule(new TourGuideJsonModule());
+		ObjectMapper cborMapper = new ObjectMapper(new CBORFactory()).registerModule(new TourGuideJsonModule());
+
+		WarmUpReport report = new WarmUp(List.of(jsonMapper, cborMapper), 20, 10).run();
+
+		assertEquals(200, report.users());
+		assertTrue(report.serializedBytes() > 0);
+		assertTrue(report.compilations() > 0);
+		assertTrue(report.elapsedNanos() > 0);
+	}
+}
@@ -0,0 +1,37 @@
+package com.openclassrooms.tourguide.load;
+
+/**
+ * Measurements of one load-test scenario at one point of the sweep.
+ * Latencies are in milliseconds, the heap high-water mark in bytes. Allocations are the bytes
+ * allocated by the load threads themselves, divided by the number of operations.
+ */
+public record LoadResult(String scenario,
+                         int users,
+                         int historyLength,
+                         long operations,
+                         long errors,
+                         double durationSeconds,
+                         double throughputPerSecond,
+                         double p50Millis,
+                         double p95Millis,
+                         double p99Millis,
+                         double maxMillis,
+                         long heapHighWaterBytes,
+                         long gcCount,
+                         double gcPauseTotalMillis,
+                         double gcPauseMaxMillis,
+                         long allocatedBytesPerOperation) {
+
+	static final String CSV_HEADER = "scenario,users,historyLength,operations,errors,durationSeconds,"
+			+ "throughputPerSecond,p50Millis,p95Millis,p99Millis,maxMillis,heapHighWaterBytes,gcCount,"
+			+ "gcPauseTotalMillis,gcPauseMaxMillis,allocatedBytesPerOperation";
+
+	String toCsv() {
+		return String.join(",", scenario, String.valueOf(users), String.valueOf(historyLength),
+				String.valueOf(operations), String.valueOf(errors), String.valueOf(durationSeconds),
+				String.valueOf(throughputPerSecond), String.valueOf(p50Millis), String.valueOf(p95Millis),
+				String.valueOf(p99Millis), String.valueOf(maxMillis), String.valueOf(heapHighWaterBytes),
+				String.valueOf(gcCount), String.valueOf(gcPauseTotalMillis), String.valueOf(gcPauseMaxMillis),
+				String.valueOf(allocatedBytesPerOperation));
+	}
+}
@@ -0,0 +1,32 @@
+package com.openclassrooms.tourguide.load;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes load-test results as {@code load-results.json} and {@code load-results.csv} so that
+ * runs of different builds can be compared by tools.
+ */
+class LoadResultWriter {
+
+	private LoadResultWriter() {
+	}
+
+	static void write(List<LoadResult> results, Path directory) throws IOException {
+		Files.createDirectories(directory);
+
+		new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+				.writeValue(directory.resolve("load-results.json").toFile(), results);
+
+		List<String> lines = new ArrayList<>(results.size() + 1);
+		lines.add(LoadResult.CSV_HEADER);
+		results.forEach(result -> lines.add(result.toCsv()));
+		Files.write(directory.resolve("load-results.csv"), lines);
+	}
+}
@@ -0,0 +1,150 @@
+package com.openclassrooms.tourguide.load;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+import org.HdrHistogram.Histogram;
+
+import com.sun.management.ThreadMXBean;
+
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Runs an operation many times on a pool of threads and measures throughput, latency
+ * percentiles, heap high-water mark and GC pauses.
+ * <p>
+ * Settings are read from system properties so the sweep can be changed from the command line:
+ * <ul>
+ *     <li>{@code load.userCounts}, comma-separated, default {@code 1000,10000},</li>
+ *     <li>{@code load.historyLengths}, comma-separated, default {@code 3,30},</li>
+ *     <li>{@code load.threads}, default 4 per available processor,</li>
+ *     <li>{@code load.httpRequests}, maximum requests per HTTP scenario, default 20000,</li>
+ *     <li>{@code load.gpsUtil.latency}, {@code load.rewardCentral.latency}, {@code load.tripPricer.latency},
+ *     latency profiles of the simulated dependencies, default {@code none},</li>
+ *     <li>{@code load.seed}, default 42,</li>
+ *     <li>{@code load.outputDir}, default {@code target/load-tests}.</li>
+ * </ul>
+ * </p>
+ */
+class LoadTestHarness {
+	private static final double MAX_LATITUDE = 85.05112878;
+	private static final ThreadMXBean THREAD_MX_BEAN = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	static final long SEED = Long.getLong("load.seed", 42);
+	static final int THREADS = Integer.getInteger("load.threads", 4 * Runtime.getRuntime().availableProcessors());
+	static final int HTTP_REQUESTS = Integer.getInteger("load.httpRequests", 20000);
+
+	static int[] userCounts() {
+		return intList("load.userCounts", "1000,10000");
+	}
+
+	static int[] historyLengths() {
+		return intList("load.historyLengths", "3,30");
+	}
+
+	static String latency(String dependency) {
+		return System.getProperty("load." + dependency + ".latency", "none");
+	}
+
+	static String outputDir() {
+		return System.getProperty("load.outputDir", "target/load-tests");
+	}
+
+	private static int[] intList(String property, String defaultValue) {
+		return Arrays.stream(System.getProperty(property, defaultValue).split(","))
+				.map(String::trim)
+				.mapToInt(Integer::parseInt)
+				.toArray();
+	}
+
+	/**
+	 * Creates users with a seeded random location history.
+	 */
+	static List<User> generateUsers(int count, int historyLength) {
+		Random random = new Random(SEED);
+		List<User> users = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			User user = new User(new UUID(SEED, i), "loadUser" + i, "000", "loadUser" + i + "@tourGuide.com");
+			extendHistory(user, historyLength, random);
+			users.add(user);
+		}
+		return users;
+	}
+
+	/**
+	 * Adds seeded random locations to the user's history until it holds {@code historyLength} locations.
+	 */
+	static void extendHistory(User user, int historyLength, Random random) {
+		long now = System.currentTimeMillis();
+		for (int j = user.getVisitedLocations().size(); j < historyLength; j++) {
+			Location location = new Location(random.nextDouble() * 2 * MAX_LATITUDE - MAX_LATITUDE,
+					random.nextDouble() * 360 - 180);
+			user.addToVisitedLocations(new VisitedLocation(user.getUserId(), location,
+					new Date(now - TimeUnit.DAYS.toMillis(random.nextInt(30)))));
+		}
+	}
+
+	/**
+	 * Runs {@code operation} for each index from 0 to {@code operations} (exclusive), spread over
+	 * {@link #THREADS} threads, and measures it. An operation throwing counts as an error.
+	 */
+	static LoadResult measure(String scenario, int users, int historyLength, int operations, IntConsumer operation) {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		LongAdder errors = new LongAdder();
+		LongAdder allocatedBytes = new LongAdder();
+		try (ResourceMonitor monitor = new ResourceMonitor()) {
+			List<Future<Histogram>> results = new ArrayList<>(THREADS);
+			long start = System.nanoTime();
+			for (int t = 0; t < THREADS; t++) {
+				int thread = t;
+				results.add(pool.submit(() -> {
+					Histogram histogram = new Histogram(3);
+					long allocatedBefore = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+					for (int i = thread; i < operations; i += THREADS) {
+						long begin = System.nanoTime();
+						try {
+							operation.accept(i);
+						} catch (RuntimeException e) {
+							errors.increment();
+						}
+						histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin));
+					}
+					allocatedBytes.add(THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - allocatedBefore);
+					return histogram;
+				}));
+			}
+
+			Histogram latencies = new Histogram(3);
+			for (Future<Histogram> result : results) {
+				latencies.add(result.get());
+			}
+			double durationSeconds = (System.nanoTime() - start) / 1e9;
+
+			return new LoadResult(scenario, users, historyLength, operations, errors.sum(), durationSeconds,
+					operations / durationSeconds,
+					latencies.getValueAtPercentile(50) / 1000.0,
+					latencies.getValueAtPercentile(95) / 1000.0,
+					latencies.getValueAtPercentile(99) / 1000.0,
+					latencies.getMaxValue() / 1000.0,
+					monitor.heapHighWaterBytes(), monitor.gcCount(), monitor.gcPauseTotalMillis(),
+					monitor.gcPauseMaxMillis(), operations == 0 ? 0 : allocatedBytes.sum() / operations);
+		} catch (Exception e) {
+			throw new IllegalStateException("Scenario " + scenario + " failed", e);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.openclassrooms.tourguide.load;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Records the heap high-water mark and the garbage collections happening while a scenario runs.
+ */
+class ResourceMonitor implements AutoCloseable {
+	private final LongAdder gcCount = new LongAdder();
+	private final DoubleAdder gcPauseTotal = new DoubleAdder();
+	private final DoubleAccumulator gcPauseMax = new DoubleAccumulator(Math::max, 0);
+	private final List<NotificationEmitter> emitters = new ArrayList<>();
+	private final NotificationListener listener = this::onNotification;
+
+	ResourceMonitor() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			pool.resetPeakUsage();
+		}
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if (collector instanceof NotificationEmitter emitter) {
+				emitter.addNotificationListener(listener, null, null);
+				emitters.add(emitter);
+			}
+		}
+	}
+
+	private void onNotification(Notification notification, Object handback) {
+		if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+			return;
+		}
+		GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+		long duration = info.getGcInfo().getDuration();
+		gcCount.increment();
+		gcPauseTotal.add(duration);
+		gcPauseMax.accumulate(duration);
+	}
+
+	/**
+	 * @return the sum of the peak usage of every heap memory pool since the monitor was created
+	 */
+	long heapHighWaterBytes() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	long gcCount() {
+		return gcCount.sum();
+	}
+
+	double gcPauseTotalMillis() {
+		return gcPauseTotal.sum();
+	}
+
+	double gcPauseMaxMillis() {
+		return gcPauseMax.get();
+	}
+
+	@Override
+	public void close() {
+		for (NotificationEmitter emitter : emitters) {
+			try {
+				emitter.removeNotificationListener(listener);
+			} catch (ListenerNotFoundException e) {
+				// already removed
+			}
+		}
+	}
+}
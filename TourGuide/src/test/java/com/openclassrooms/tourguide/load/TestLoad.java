@@ -0,0 +1,146 @@
+package com.openclassrooms.tourguide.load;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import com.openclassrooms.tourguide.TourguideApplication;
+import com.openclassrooms.tourguide.client.LatencyProfile;
+import com.openclassrooms.tourguide.client.SimulatedGpsUtilClient;
+import com.openclassrooms.tourguide.client.SimulatedRewardCentralClient;
+import com.openclassrooms.tourguide.client.SimulatedTripPricerClient;
+import com.openclassrooms.tourguide.helper.InternalTestHelper;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.TourGuideService;
+import com.openclassrooms.tourguide.user.User;
+
+/**
+ * Load tests sweeping user counts and history lengths, against the service layer and the
+ * HTTP endpoints, with simulated dependencies. Only run with the {@code load-test} Maven
+ * profile; see {@link LoadTestHarness} for the settings. Results are written to
+ * {@code target/load-tests} once every scenario has run.
+ * <p>
+ * Large sweeps need a large heap, e.g. {@code -DargLine=-Xmx16g} for a million users.
+ * </p>
+ */
+@Tag("load")
+public class TestLoad {
+	private static final Logger logger = LoggerFactory.getLogger(TestLoad.class);
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+	private static final List<LoadResult> results = Collections.synchronizedList(new ArrayList<>());
+
+	static Stream<Arguments> sweep() {
+		List<Arguments> arguments = new ArrayList<>();
+		for (int users : LoadTestHarness.userCounts()) {
+			for (int historyLength : LoadTestHarness.historyLengths()) {
+				arguments.add(Arguments.of(users, historyLength));
+			}
+		}
+		return arguments.stream();
+	}
+
+	@ParameterizedTest(name = "{0} users, {1} locations each")
+	@MethodSource("sweep")
+	public void serviceLayer(int userCount, int historyLength) {
+		RewardsService rewardsService = new RewardsService(new SimulatedRewardCentralClient(LoadTestHarness.SEED,
+				LatencyProfile.parse(LoadTestHarness.latency("rewardCentral")), 0));
+		InternalTestHelper.setInternalUserNumber(0);
+		TourGuideService tourGuideService = new TourGuideService(
+				new SimulatedGpsUtilClient(LoadTestHarness.SEED, LatencyProfile.parse(LoadTestHarness.latency("gpsUtil")), 0),
+				rewardsService,
+				new SimulatedTripPricerClient(LoadTestHarness.SEED, LatencyProfile.parse(LoadTestHarness.latency("tripPricer")), 0));
+		tourGuideService.tracker.stopTracking();
+
+		List<User> users = LoadTestHarness.generateUsers(userCount, historyLength);
+		users.forEach(tourGuideService::addUser);
+
+		record(LoadTestHarness.measure("service:calculateRewards", userCount, historyLength, userCount,
+				i -> rewardsService.calculateRewards(users.get(i)).join()));
+		record(LoadTestHarness.measure("service:trackUserLocation", userCount, historyLength, userCount,
+				i -> tourGuideService.trackUserLocation(users.get(i))));
+		record(LoadTestHarness.measure("service:getNearbyAttractions", userCount, historyLength, userCount,
+				i -> tourGuideService.getNearByAttractionsInfo(users.get(i))));
+		tourGuideService.close();
+	}
+
+	@ParameterizedTest(name = "{0} users, {1} locations each")
+	@MethodSource("sweep")
+	public void httpEndpoints(int userCount, int historyLength) {
+		InternalTestHelper.setInternalUserNumber(userCount);
+		ServletWebServerApplicationContext context = (ServletWebServerApplicationContext) new SpringApplicationBuilder(TourguideApplication.class)
+				// command line arguments, unlike builder defaults, take precedence over application.properties
+				.run("--server.port=0",
+						"--logging.level.com.openclassrooms.tourguide=INFO",
+						"--tourguide.simulation.enabled=true",
+						"--tourguide.admission.enabled=false",
+						"--tourguide.simulation.seed=" + LoadTestHarness.SEED,
+						"--tourguide.simulation.gps-util.latency=" + LoadTestHarness.latency("gpsUtil"),
+						"--tourguide.simulation.reward-central.latency=" + LoadTestHarness.latency("rewardCentral"),
+						"--tourguide.simulation.trip-pricer.latency=" + LoadTestHarness.latency("tripPricer"));
+		TourGuideService tourGuideService = context.getBean(TourGuideService.class);
+		try {
+			Random random = new Random(LoadTestHarness.SEED);
+			tourGuideService.getAllUsers().forEach(user -> LoadTestHarness.extendHistory(user, historyLength, random));
+
+			HttpClient client = HttpClient.newHttpClient();
+			String baseUrl = "http://localhost:" + context.getWebServer().getPort();
+			int requests = Math.min(userCount, LoadTestHarness.HTTP_REQUESTS);
+			for (String endpoint : List.of("/getLocation", "/getNearbyAttractions", "/getRewards")) {
+				record(LoadTestHarness.measure("http:" + endpoint, userCount, historyLength, requests, i -> {
+					URI uri = URI.create(baseUrl + endpoint + "?userName=internalUser" + (i * 7919L % userCount));
+					assertEquals(200, send(client, uri));
+				}));
+			}
+		} finally {
+			tourGuideService.tracker.stopTracking();
+			context.close();
+		}
+	}
+
+	@AfterAll
+	public static void writeResults() throws IOException {
+		LoadResultWriter.write(results, Path.of(LoadTestHarness.outputDir()));
+	}
+
+	private static int send(HttpClient client, URI uri) {
+		try {
+			return client.send(HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT).GET().build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void record(LoadResult result) {
+		if (logger.isInfoEnabled()) {
+			logger.info(String.format("%s users=%d history=%d: %.0f ops/s, p50=%.2fms p95=%.2fms p99=%.2fms, heap peak=%dMB, gc pauses=%.0fms, %d B/op",
+					result.scenario(), result.users(), result.historyLength(), result.throughputPerSecond(),
+					result.p50Millis(), result.p95Millis(), result.p99Millis(), result.heapHighWaterBytes() / (1024 * 1024),
+					result.gcPauseTotalMillis(), result.allocatedBytesPerOperation()));
+		}
+		results.add(result);
+	}
+}